@@ -0,0 +1,72 @@
+package io.github.fzdwx.words.benchmark;
+
+import io.github.fzdwx.words.WordsMatcher;
+import io.github.fzdwx.words.internal.dfa.FrozenWordsMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 编译双数组trie({@link io.github.fzdwx.words.internal.dfa.AccurateWordsMatcher#freeze()})的耗时随词库大小的变化
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote <pre>
+ *     1.运行: mvn -Pjmh test-compile exec:exec -Djmh.args="FreezeBenchmark"
+ *     2.词由整个中文字符集中随机的字组成,子节点分散,是 base 查找最困难的情况;耗时应随 size 线性增长
+ * </pre>
+ * @date 2026/10/18 10:20
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FreezeBenchmark {
+
+    @Param({"10000", "100000", "500000"})
+    public int size;
+
+    private List<String> words;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final Random random = new Random(WordsGenerator.RANDOM_SEED);
+        final Set<String> words = new LinkedHashSet<>(this.size << 1);
+        while (words.size() < this.size) {
+            final int length = 2 + random.nextInt(5);
+            final StringBuilder word = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                word.append((char) (0x4E00 + random.nextInt(0x9FA5 - 0x4E00 + 1)));
+            }
+            words.add(word.toString());
+        }
+        this.words = new ArrayList<>(words);
+    }
+
+    @Benchmark
+    public FrozenWordsMatcher accurate() {
+        return WordsMatcher.accurate(this.words).freeze();
+    }
+
+    @Benchmark
+    public FrozenWordsMatcher fuzz() {
+        return WordsMatcher.fuzz(this.words).freeze();
+    }
+}
@@ -0,0 +1,203 @@
+package io.github.fzdwx.words.benchmark;
+
+import io.github.fzdwx.words.WordsMatcher;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 基准测试的词库与内容生成器,以 src/test/resources/1.txt 为种子,固定随机种子,每次生成的数据完全一致
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote <pre>
+ *     1.词库先放入 1.txt 中的中文词与英文词,不够的部分用种子词的字符随机组合
+ *     2.生成的词只以种子词的首字符开头,干净的内容只使用其他字符,保证一个词都不会命中
+ *     3.有问题的内容在干净的内容中按 {@link #DIRTY_INTERVAL} 的间隔插入词库中的词
+ *     4.每 {@link #MIXED_INTERVAL} 个生成的词中有一个中英混合的词,让 {@link io.github.fzdwx.words.internal.dfa.MixWordsMatcher} 的精确部分也有词
+ * </pre>
+ * @date 2026/10/17 19:50
+ */
+final class WordsGenerator {
+
+    static final String SEED = "1.txt";
+    static final long RANDOM_SEED = 0x5EED_1E55L;
+
+    /**
+     * 有问题的内容中平均每隔多少个字符插入一个词
+     */
+    static final int DIRTY_INTERVAL = 64;
+    static final int MIXED_INTERVAL = 10;
+
+    private final Random random = new Random(RANDOM_SEED);
+    private final List<String> cjkSeeds = new ArrayList<>();
+    private final List<String> latinSeeds = new ArrayList<>();
+
+    /**
+     * 种子词的首字符,生成的词只以它们开头
+     */
+    private final StringBuilder cjkHeads = new StringBuilder();
+    private final StringBuilder latinHeads = new StringBuilder();
+    /**
+     * 种子词中出现的全部字符
+     */
+    private final StringBuilder cjkChars = new StringBuilder();
+    private final StringBuilder latinChars = new StringBuilder();
+    /**
+     * 干净内容使用的字符,与 heads 不相交
+     */
+    private final StringBuilder cjkClean = new StringBuilder();
+    private final StringBuilder latinClean = new StringBuilder();
+
+    WordsGenerator() {
+        for (final String line : lines()) {
+            this.split(line);
+        }
+
+        for (char c = 0x4E00; c <= 0x9FA5; c++) {
+            if (this.cjkHeads.indexOf(String.valueOf(c)) < 0 && this.cjkChars.indexOf(String.valueOf(c)) < 0) {
+                this.cjkClean.append(c);
+            }
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            if (this.latinHeads.indexOf(String.valueOf(c)) < 0) {
+                this.latinClean.append(c);
+            }
+        }
+    }
+
+    /**
+     * @param size 词库大小
+     * @return 不重复的词,前面是种子词
+     */
+    List<String> words(final int size) {
+        final Set<String> words = new LinkedHashSet<>(size << 1);
+        final int seeds = Math.max(this.cjkSeeds.size(), this.latinSeeds.size());
+        for (int i = 0; i < seeds && words.size() < size; i++) {
+            if (i < this.cjkSeeds.size()) {
+                words.add(this.cjkSeeds.get(i));
+            }
+            if (i < this.latinSeeds.size() && words.size() < size) {
+                words.add(this.latinSeeds.get(i));
+            }
+        }
+
+        int n = 0;
+        while (words.size() < size) {
+            final String word;
+            if (++n % MIXED_INTERVAL == 0) {
+                word = this.word(WordsMatcherBenchmark.Script.CJK, 1, 2) + this.word(WordsMatcherBenchmark.Script.LATIN, 2, 4);
+            } else if ((n & 1) == 0) {
+                word = this.word(WordsMatcherBenchmark.Script.CJK, 2, 6);
+            } else {
+                word = this.word(WordsMatcherBenchmark.Script.LATIN, 3, 10);
+            }
+            words.add(word);
+        }
+        return new ArrayList<>(words);
+    }
+
+    /**
+     * @param length 内容长度
+     * @param dirty  是否插入敏感词
+     * @param words  {@link #words(int)}
+     */
+    String content(final WordsMatcherBenchmark.Script script, final int length, final boolean dirty, final List<String> words) {
+        final StringBuilder content = new StringBuilder(length + 16);
+        while (content.length() < length) {
+            if (dirty && this.random.nextInt(DIRTY_INTERVAL) == 0) {
+                String word;
+                do { // 只插入与内容同一种文字的词
+                    word = words.get(this.random.nextInt(words.size()));
+                } while (WordsMatcher.isChinese(word.charAt(0)) != (script == WordsMatcherBenchmark.Script.CJK));
+                content.append(word).append(script == WordsMatcherBenchmark.Script.CJK ? "" : " ");
+                continue;
+            }
+
+            if (script == WordsMatcherBenchmark.Script.CJK) {
+                content.append(this.random.nextInt(16) == 0 ? '，' : pick(this.cjkClean));
+            } else {
+                final int word = 2 + this.random.nextInt(8);
+                for (int i = 0; i < word; i++) {
+                    final char c = pick(this.latinClean);
+                    content.append(i == 0 && this.random.nextInt(4) == 0 ? Character.toUpperCase(c) : c);
+                }
+                content.append(' ');
+            }
+        }
+        content.setLength(length);
+        return content.toString();
+    }
+
+    private String word(final WordsMatcherBenchmark.Script script, final int min, final int max) {
+        final StringBuilder heads = script == WordsMatcherBenchmark.Script.CJK ? this.cjkHeads : this.latinHeads;
+        final StringBuilder chars = script == WordsMatcherBenchmark.Script.CJK ? this.cjkChars : this.latinChars;
+        final int length = min + this.random.nextInt(max - min + 1);
+        final StringBuilder word = new StringBuilder(length);
+        word.append(pick(heads));
+        while (word.length() < length) {
+            word.append(pick(chars));
+        }
+        return word.toString();
+    }
+
+    private char pick(final CharSequence chars) {
+        return chars.charAt(this.random.nextInt(chars.length()));
+    }
+
+    /**
+     * 把一行拆成中文词与英文词(连续两个以上的中文字符或英文字母)
+     */
+    private void split(final String line) {
+        int from = 0;
+        while (from < line.length()) {
+            final boolean cjk = WordsMatcher.isChinese(line.charAt(from));
+            final boolean latin = WordsMatcher.isLetter(line.charAt(from));
+            int to = from + 1;
+            while (to < line.length() && (cjk ? WordsMatcher.isChinese(line.charAt(to)) : latin && WordsMatcher.isLetter(line.charAt(to)))) {
+                to++;
+            }
+
+            if ((cjk || latin) && to - from >= 2) {
+                final String word = cjk ? line.substring(from, to) : line.substring(from, to).toLowerCase();
+                final StringBuilder heads = cjk ? this.cjkHeads : this.latinHeads;
+                final StringBuilder chars = cjk ? this.cjkChars : this.latinChars;
+                (cjk ? this.cjkSeeds : this.latinSeeds).add(word);
+                if (heads.indexOf(word.substring(0, 1)) < 0) {
+                    heads.append(word.charAt(0));
+                }
+                for (final char c : word.toCharArray()) {
+                    if (chars.indexOf(String.valueOf(c)) < 0) {
+                        chars.append(c);
+                    }
+                }
+            }
+            from = to;
+        }
+    }
+
+    private static List<String> lines() {
+        final List<String> lines = new ArrayList<>();
+        try (final InputStream in = WordsGenerator.class.getClassLoader().getResourceAsStream(SEED)) {
+            if (in == null) {
+                throw new IllegalStateException("seed not found on classpath: " + SEED);
+            }
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,125 @@
+package io.github.fzdwx.words.benchmark;
+
+import io.github.fzdwx.words.WordsMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各匹配器的 process 与 {@link io.github.fzdwx.words.WordsAction} 常用操作的基准测试
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote <pre>
+ *     1.运行: mvn -Pjmh test-compile exec:exec,默认带 -prof gc 报告分配速率(gc.alloc.rate.norm 为每次操作分配的字节数)
+ *     2.只运行一部分: mvn -Pjmh test-compile exec:exec -Djmh.args="-prof gc WordsMatcherBenchmark.findAll -p size=1000"
+ *     3.词库与内容见 {@link WordsGenerator},同样的参数每次生成的数据一致,可以直接比较不同版本的结果
+ * </pre>
+ * @date 2026/10/17 19:50
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class WordsMatcherBenchmark {
+
+    /**
+     * 内容长度
+     */
+    static final int LENGTH = 4096;
+
+    public enum Kind {
+        ACCURATE, FUZZ, MIX
+    }
+
+    public enum Script {
+        CJK, LATIN
+    }
+
+    @Param({"ACCURATE", "FUZZ", "MIX"})
+    public Kind kind;
+
+    /**
+     * 词库大小
+     */
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"CJK", "LATIN"})
+    public Script script;
+
+    /**
+     * 内容中是否有敏感词
+     */
+    @Param({"false", "true"})
+    public boolean dirty;
+
+    private WordsMatcher matcher;
+    private String content;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final WordsGenerator generator = new WordsGenerator();
+        final List<String> words = generator.words(this.size);
+        switch (this.kind) {
+            case ACCURATE:
+                this.matcher = WordsMatcher.accurate(words);
+                break;
+            case FUZZ:
+                this.matcher = WordsMatcher.fuzz(words);
+                break;
+            default:
+                this.matcher = WordsMatcher.mixed(words);
+        }
+        this.content = generator.content(this.script, LENGTH, this.dirty, words);
+
+        // 生成器保证干净的内容不会命中,这里再确认一次,避免比较的不是同一种场景
+        if (this.matcher.action(this.content).match() != this.dirty) {
+            throw new IllegalStateException("content is expected to be " + (this.dirty ? "dirty" : "clean"));
+        }
+    }
+
+    @Benchmark
+    public int process() {
+        final int[] count = {0};
+        this.matcher.process(false, this.content, hit -> {
+            count[0]++;
+            return false;
+        });
+        return count[0];
+    }
+
+    @Benchmark
+    public boolean match() {
+        return this.matcher.action(this.content).match();
+    }
+
+    @Benchmark
+    public Map<String, String> findAll() {
+        return this.matcher.action(this.content).findAll();
+    }
+
+    @Benchmark
+    public String replace() {
+        return this.matcher.action(this.content).replace('*');
+    }
+
+    @Benchmark
+    public String highlight() {
+        return this.matcher.action(this.content).highlight();
+    }
+}
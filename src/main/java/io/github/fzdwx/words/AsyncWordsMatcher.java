@@ -0,0 +1,307 @@
+package io.github.fzdwx.words;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步词语匹配器
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote 把 {@link WordsMatcher} 的扫描交给有界的工作线程池,调用线程(包括虚拟线程)只拿到 {@link CompletableFuture}
+ * 或订阅命中,不占用调用线程做 CPU 密集的扫描。<pre>
+ *     1.工作线程数与排队任务数都有上限,队列满时返回的 future 以 {@link RejectedExecutionException} 失败
+ *     2.内容按 {@link #CHUNK} 个字符分块交给 {@link WordsSession},块之间检查取消,取消后不再占用工作线程
+ *     3.{@link #publish(boolean, String, HitSubscriber)} 按订阅者的请求量推送命中(背压),请求量用完时扫描暂停并让出工作线程
+ *     4.只依赖 java 8,订阅接口与 Reactive Streams / {@code java.util.concurrent.Flow} 的形状一致,需要时可以直接适配
+ * </pre>
+ * @date 2026/10/17 18:30
+ */
+public final class AsyncWordsMatcher implements AutoCloseable {
+
+    /**
+     * 每次交给扫描器的字符数
+     */
+    static final int CHUNK = 4096;
+
+    private final WordsMatcher matcher;
+    private final ExecutorService executor;
+    /**
+     * 线程池是否由当前对象创建,是则 {@link #close()} 时关闭
+     */
+    private final boolean ownExecutor;
+
+    /**
+     * 线程数为 CPU 核数,最多排队 1024 个任务
+     */
+    public AsyncWordsMatcher(final WordsMatcher matcher) {
+        this(matcher, Runtime.getRuntime().availableProcessors(), 1024);
+    }
+
+    public AsyncWordsMatcher(final WordsMatcher matcher, final int threads, final int queueCapacity) {
+        this(matcher, newExecutor(threads, queueCapacity), true);
+    }
+
+    /**
+     * @param executor 调用方提供的线程池,{@link #close()} 时不关闭
+     */
+    public AsyncWordsMatcher(final WordsMatcher matcher, final ExecutorService executor) {
+        this(matcher, executor, false);
+    }
+
+    private AsyncWordsMatcher(final WordsMatcher matcher, final ExecutorService executor, final boolean ownExecutor) {
+        this.matcher = matcher;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+    }
+
+    /**
+     * 是否包含敏感词,命中第一个敏感词后立即结束
+     *
+     * @return {@link CompletableFuture<Boolean> } 取消后扫描在下一个块之前结束
+     */
+    public CompletableFuture<Boolean> match(final String content) {
+        final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        this.execute(future, () -> {
+            final boolean[] hit = {false};
+            final WordsSession session = this.matcher.session(MatchPolicy.ALL, (wordId, start, end) -> hit[0] = true);
+            final int length = content == null ? 0 : content.length();
+            for (int from = 0; from < length && !hit[0]; from += CHUNK) {
+                if (future.isDone()) {
+                    return;
+                }
+                session.feed(content, from, Math.min(from + CHUNK, length));
+            }
+            future.complete(hit[0]);
+        });
+        return future;
+    }
+
+    /**
+     * 返回匹配到的敏感词语
+     *
+     * @return {@link CompletableFuture } 与 {@link WordsAction#findAll()} 一致
+     */
+    public CompletableFuture<Map<String, String>> findAll(final String content) {
+        final CompletableFuture<Map<String, String>> future = new CompletableFuture<>();
+        this.execute(future, () -> future.complete(this.matcher.action(content).findAll()));
+        return future;
+    }
+
+    /**
+     * 订阅一段内容的命中
+     *
+     * @param policy     匹配策略
+     * @param content    内容
+     * @param subscriber 订阅者,先收到 {@link HitSubscriber#onSubscribe(Subscription)},请求之后才开始扫描
+     */
+    public void publish(final MatchPolicy policy, final String content, final HitSubscriber subscriber) {
+        final HitSubscription subscription = new HitSubscription(policy, content, subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * @param partMatch 部分匹配（粒度）,见 {@link MatchPolicy#of(boolean)}
+     * @see #publish(MatchPolicy, String, HitSubscriber)
+     */
+    public void publish(final boolean partMatch, final String content, final HitSubscriber subscriber) {
+        this.publish(MatchPolicy.of(partMatch), content, subscriber);
+    }
+
+    @Override
+    public void close() {
+        if (this.ownExecutor) {
+            this.executor.shutdown();
+        }
+    }
+
+    private void execute(final CompletableFuture<?> future, final Runnable task) {
+        try {
+            this.executor.execute(() -> {
+                if (future.isDone()) { // 排队期间已经取消
+                    return;
+                }
+                try {
+                    task.run();
+                } catch (final Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private static ExecutorService newExecutor(final int threads, final int queueCapacity) {
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            final Thread thread = new Thread(runnable, "words-match-async-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 命中订阅者,与 Reactive Streams 的 Subscriber 对应,命中以基本类型传递
+     */
+    public interface HitSubscriber {
+
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * @param wordId 敏感词 id,通过 {@link WordsMatcher#word(int)} 取得敏感词
+         * @param start  命中内容起始位置(包含)
+         * @param end    命中内容结束位置(不包含)
+         */
+        void onNext(int wordId, int start, int end);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+    }
+
+    /**
+     * 订阅,与 Reactive Streams 的 Subscription 对应
+     */
+    public interface Subscription {
+
+        /**
+         * 再请求 n 个命中
+         */
+        void request(long n);
+
+        /**
+         * 取消,扫描在当前块结束后停止,之后不再回调订阅者
+         */
+        void cancel();
+    }
+
+    /**
+     * 拉取式的发布: 命中先放入缓冲,有请求量时才交给订阅者;缓冲不为空且没有请求量时不再扫描新的块
+     */
+    private final class HitSubscription implements Subscription, Runnable {
+
+        private final String content;
+        private final HitSubscriber subscriber;
+        private final WordsSession session;
+        private final AtomicLong requested = new AtomicLong();
+        /**
+         * 待执行的 drain 次数,保证同一时刻只有一个工作线程在扫描与回调
+         */
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private boolean done;
+        private int position;
+
+        /**
+         * 已扫描但还没有交给订阅者的命中
+         */
+        private int[] ids = new int[16];
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private int head;
+        private int tail;
+
+        private HitSubscription(final MatchPolicy policy, final String content, final HitSubscriber subscriber) {
+            this.content = content == null ? "" : content;
+            this.subscriber = subscriber;
+            this.session = AsyncWordsMatcher.this.matcher.session(policy, (wordId, start, end) -> this.buffer(wordId, (int) start, (int) end));
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                this.cancel();
+                this.subscriber.onError(new IllegalArgumentException("request must be positive: " + n));
+                return;
+            }
+            long current;
+            do {
+                current = this.requested.get();
+            } while (!this.requested.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+            this.schedule();
+        }
+
+        @Override
+        public void cancel() {
+            this.cancelled = true;
+        }
+
+        private void schedule() {
+            if (this.wip.getAndIncrement() == 0) {
+                try {
+                    AsyncWordsMatcher.this.executor.execute(this);
+                } catch (final RejectedExecutionException e) {
+                    this.cancelled = true;
+                    this.subscriber.onError(e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                try {
+                    this.drain();
+                } catch (final Throwable e) {
+                    this.cancelled = true;
+                    this.subscriber.onError(e);
+                }
+                missed = this.wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            final int length = this.content.length();
+            while (!this.cancelled && !this.done) {
+                if (this.head < this.tail) {
+                    if (this.requested.get() == 0) {
+                        return; // 等待下一次 request
+                    }
+                    final int k = this.head++;
+                    this.requested.decrementAndGet();
+                    this.subscriber.onNext(this.ids[k], this.starts[k], this.ends[k]);
+                    continue;
+                }
+
+                if (this.position >= length || this.session.stopped()) {
+                    this.done = true;
+                    this.subscriber.onComplete();
+                    return;
+                }
+                this.head = this.tail = 0;
+                final int end = Math.min(this.position + CHUNK, length);
+                this.session.feed(this.content, this.position, end);
+                this.position = end;
+                if (end == length) {
+                    this.session.finish();
+                }
+            }
+        }
+
+        /**
+         * @return 总是 false,扫描到块尾为止
+         */
+        private boolean buffer(final int wordId, final int start, final int end) {
+            if (this.tail == this.ids.length) {
+                final int capacity = this.tail << 1;
+                this.ids = Arrays.copyOf(this.ids, capacity);
+                this.starts = Arrays.copyOf(this.starts, capacity);
+                this.ends = Arrays.copyOf(this.ends, capacity);
+            }
+            this.ids[this.tail] = wordId;
+            this.starts[this.tail] = start;
+            this.ends[this.tail] = end;
+            this.tail++;
+            return false;
+        }
+    }
+}
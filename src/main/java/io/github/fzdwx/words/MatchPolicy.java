@@ -0,0 +1,40 @@
+package io.github.fzdwx.words;
+
+/**
+ * 匹配策略,决定重叠的命中如何取舍
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote <pre>
+ *     1.自动机始终找出所有命中,不重叠的策略在扫描器中边扫描边取舍,不需要再遍历一次结果
+ *     2.不重叠的命中要等到不可能再出现更靠左(或同一位置更长)的命中时才回调,
+ *       回调按起始位置有序,比 {@link #ALL} 晚若干个字符;内容结束时交出剩余的命中
+ *     3.{@link WordsMatcher#actionFast(String)} 等部分匹配的入口使用 {@link #LEFTMOST_SHORTEST}
+ * </pre>
+ * @date 2026/10/17 19:20
+ */
+public enum MatchPolicy {
+
+    /**
+     * 所有命中,包括相互重叠、嵌套的小词,按结束位置有序
+     */
+    ALL,
+
+    /**
+     * 不重叠: 取起始位置最靠左的命中,同一起始位置取最短的,然后从它的结束位置继续
+     */
+    LEFTMOST_SHORTEST,
+
+    /**
+     * 不重叠: 取起始位置最靠左的命中,同一起始位置取最长的,然后从它的结束位置继续;
+     * 替换时一次就能完整地遮住 "一举成名" 而不是只遮住 "一举"
+     */
+    LEFTMOST_LONGEST;
+
+    /**
+     * @param partMatch 部分匹配（粒度）
+     * @return 部分匹配为 {@link #LEFTMOST_SHORTEST},否则为 {@link #ALL}
+     */
+    public static MatchPolicy of(final boolean partMatch) {
+        return partMatch ? LEFTMOST_SHORTEST : ALL;
+    }
+}
@@ -0,0 +1,209 @@
+package io.github.fzdwx.words;
+
+import io.github.fzdwx.lambada.fun.State;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 记录度量数据的匹配器,包装另一个匹配器
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote 由 {@link WordsMatcher#metered(WordsMatcher)} 创建,度量数据见 {@link #metrics()}。<pre>
+ *     1.匹配规则与被包装的匹配器完全一致,action、matchAll 等默认方法同样会被记录
+ *     2.字符串通过流式会话扫描,以便取得推进trie的字符数;敏感词不以空白开头或结尾,命中与直接扫描一致
+ *     3.流式会话在 {@link WordsSession#finish()} 时记录一次,不记录耗时;并行扫描不统计推进trie的字符数,文件扫描只记录耗时与命中
+ *     4.不需要度量时直接使用被包装的匹配器,不会有任何额外开销
+ * </pre>
+ * @date 2026/10/17 20:30
+ */
+public final class MeteredWordsMatcher implements WordsMatcher {
+
+    private final WordsMatcher delegate;
+    private final WordsMetrics metrics;
+
+    MeteredWordsMatcher(final WordsMatcher delegate) {
+        this.delegate = delegate;
+        this.metrics = new WordsMetrics(delegate::word, delegate.wordCount());
+    }
+
+    public WordsMetrics metrics() {
+        return this.metrics;
+    }
+
+    /**
+     * 被包装的匹配器
+     */
+    public WordsMatcher delegate() {
+        return this.delegate;
+    }
+
+    @Override
+    public boolean scan(final MatchPolicy policy, final String content, final HitHandler handle) {
+        if (content == null) {
+            return false;
+        }
+
+        final long begin = System.nanoTime();
+        final WordsSession session = this.delegate.session(policy, (wordId, start, end) -> {
+            this.metrics.hit(wordId);
+            return handle.apply(wordId, (int) start, (int) end);
+        });
+        session.feed(content);
+        final boolean stopped = session.finish();
+        this.metrics.scan(System.nanoTime() - begin, session.position(), session.visited());
+        return stopped;
+    }
+
+    @Override
+    public boolean scan(final MatchPolicy policy, final String content, final ForkJoinPool pool, final HitHandler handle) {
+        final long begin = System.nanoTime();
+        final boolean stopped = this.delegate.scan(policy, content, pool, (wordId, start, end) -> {
+            this.metrics.hit(wordId);
+            return handle.apply(wordId, start, end);
+        });
+        this.metrics.scan(System.nanoTime() - begin, content == null ? 0 : content.length(), 0);
+        return stopped;
+    }
+
+    @Override
+    public WordsSession session(final MatchPolicy policy, final StreamHitHandler handle) {
+        return new MeteredSession(this.delegate.session(policy, (wordId, start, end) -> {
+            this.metrics.hit(wordId);
+            return handle.apply(wordId, start, end);
+        }));
+    }
+
+    @Override
+    public boolean scan(final MatchPolicy policy, final Path path, final FileHitHandler handle) throws IOException {
+        final long begin = System.nanoTime();
+        final boolean stopped = this.delegate.scan(policy, path, (wordId, line, start, end) -> {
+            this.metrics.hit(wordId);
+            return handle.apply(wordId, line, start, end);
+        });
+        this.metrics.scan(System.nanoTime() - begin, 0, 0);
+        return stopped;
+    }
+
+    @Override
+    public String word(final int wordId) {
+        return this.delegate.word(wordId);
+    }
+
+    @Override
+    public int wordCount() {
+        return this.delegate.wordCount();
+    }
+
+    @Override
+    public State<Void> put(final String word) {
+        final State<Void> state = this.delegate.put(word);
+        this.metrics.words(this.delegate.wordCount());
+        return state;
+    }
+
+    @Override
+    public State<Void> remove(final String word) {
+        return this.delegate.remove(word);
+    }
+
+    @Override
+    public MeteredWordsMatcher applyDelta(final Collection<String> added, final Collection<String> removed) {
+        final long begin = System.nanoTime();
+        this.delegate.applyDelta(added, removed);
+        this.metrics.refresh(System.nanoTime() - begin);
+        this.metrics.words(this.delegate.wordCount());
+        return this;
+    }
+
+    /**
+     * 刷新
+     *
+     * @apiNote refresh 会重新分配 id,每个敏感词的命中次数随后按词对应到新的 id,见 {@link WordsMetrics}
+     */
+    @Override
+    public synchronized MeteredWordsMatcher refresh(final Collection<String> words) {
+        final String[] before = new String[this.delegate.wordCount()];
+        for (int i = 0; i < before.length; i++) {
+            before[i] = this.delegate.word(i);
+        }
+
+        final long begin = System.nanoTime();
+        this.delegate.refresh(words);
+        this.metrics.refresh(System.nanoTime() - begin);
+        this.metrics.words(before, this.delegate.wordCount());
+        return this;
+    }
+
+    @Override
+    public boolean hasWords() {
+        return this.delegate.hasWords();
+    }
+
+    /**
+     * 第一次 {@link #finish()} 时记录扫描的字符数与推进trie的字符数
+     */
+    private final class MeteredSession implements WordsSession {
+
+        private final WordsSession session;
+        private boolean recorded;
+
+        private MeteredSession(final WordsSession session) {
+            this.session = session;
+        }
+
+        @Override
+        public boolean feed(final CharSequence chunk) {
+            return this.session.feed(chunk);
+        }
+
+        @Override
+        public boolean feed(final CharSequence chunk, final int start, final int end) {
+            return this.session.feed(chunk, start, end);
+        }
+
+        @Override
+        public boolean feed(final char[] chars, final int offset, final int length) {
+            return this.session.feed(chars, offset, length);
+        }
+
+        @Override
+        public boolean feed(final CharBuffer buffer) {
+            return this.session.feed(buffer);
+        }
+
+        @Override
+        public boolean feed(final Reader reader) throws IOException {
+            return this.session.feed(reader);
+        }
+
+        @Override
+        public boolean finish() {
+            final boolean stopped = this.session.finish();
+            if (!this.recorded) {
+                this.recorded = true;
+                MeteredWordsMatcher.this.metrics.scan(-1, this.session.position(), this.session.visited());
+            }
+            return stopped;
+        }
+
+        @Override
+        public long position() {
+            return this.session.position();
+        }
+
+        @Override
+        public long visited() {
+            return this.session.visited();
+        }
+
+        @Override
+        public boolean stopped() {
+            return this.session.stopped();
+        }
+    }
+}
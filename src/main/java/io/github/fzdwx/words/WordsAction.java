@@ -1,22 +1,32 @@
 package io.github.fzdwx.words;
 
-import com.google.common.base.Strings;
-import org.apache.commons.lang3.StringUtils;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Function;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * words action.
  *
  * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote <pre>
+ *     1.{@link #iterator()}、{@link #hits()} 边扫描边返回命中,调用方不再读取时扫描随即停止,不缓存结果
+ *     2.findAll、replace、highlight 等需要全部命中的方法才扫描整个内容,结果只计算一次
+ *     3.扫描只记录每次命中的 id 与位置;只有 {@link #findAll()} 与 {@link #map(Function)} 才取出被匹配的内容并建立 Map,
+ *       {@link #findAllOccurrences()}、replace、highlight 不为命中分配字符串
+ * </pre>
  * @date 2022/3/10 16:55
  */
-public class WordsAction {
+public class WordsAction implements Iterable<WordsAction.Hit> {
 
     private final static String HTML_HIGHLIGHT = "<font color='red'>%s</font>";
 
@@ -25,10 +35,12 @@ public class WordsAction {
      */
     private final String content;
 
+    private final WordsMatcher matcher;
+
     /**
-     * 映射器
+     * 匹配策略
      */
-    private final Function<WordsMatcher.Handler, Boolean> mapper;
+    private final MatchPolicy policy;
 
     /**
      * 命中的单词
@@ -37,9 +49,19 @@ public class WordsAction {
     private Collection<String> matchHintWords;
     private Collection<String> sensitiveWords;
 
-    WordsAction(final String content, final Function<WordsMatcher.Handler, Boolean> mapper) {
+    /**
+     * 每一次命中的敏感词 id,及其在 content 中的位置 [hitStarts[i], hitEnds[i]);扫描过之后才不为 null
+     */
+    private int[] hitIds;
+    private int[] hitStarts;
+    private int[] hitEnds;
+    private int hitCount;
+    private WordsOccurrences occurrences;
+
+    WordsAction(final String content, final WordsMatcher matcher, final MatchPolicy policy) {
         this.content = content;
-        this.mapper = mapper;
+        this.matcher = matcher;
+        this.policy = policy;
     }
 
     /**
@@ -48,13 +70,35 @@ public class WordsAction {
      * @return boolean 是否包含敏感词
      */
     public boolean match() {
-        if (this.hintWords == null)
-            return this.mapper.apply(s -> true);
+        if (this.hitIds == null)
+            return this.matcher.scan(MatchPolicy.ALL, this.content, (wordId, start, end) -> true); // 是否有命中与策略无关,不必等待取舍
         else {
-            return this.hintWords.size() > 0;
+            return this.hitCount > 0;
         }
     }
 
+    /**
+     * 按顺序惰性返回每一次命中
+     *
+     * @return {@link Iterator<Hit> } 每次 hasNext 只扫描到下一个命中为止;已经扫描过全部内容时直接返回缓存的命中
+     */
+    @Override
+    public Iterator<Hit> iterator() {
+        if (this.hitIds != null) {
+            return new CachedHits();
+        }
+        return new LazyHits();
+    }
+
+    /**
+     * 按顺序惰性返回每一次命中,见 {@link #iterator()}
+     *
+     * @return {@link Stream<Hit> } 短路操作(findFirst、limit、anyMatch 等)结束后不再扫描剩余内容
+     */
+    public Stream<Hit> hits() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this.iterator(), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
     /**
      * 返回匹配到的敏感词语
      *
@@ -66,22 +110,41 @@ public class WordsAction {
         return this.hintWords;
     }
 
+    /**
+     * 返回每一次命中及每个敏感词的命中次数
+     *
+     * @return {@link WordsOccurrences } 与 {@link #findAll()} 共用同一次扫描,同一个敏感词的多次命中都会保留
+     */
+    public WordsOccurrences findAllOccurrences() {
+        this.scan();
+        if (this.occurrences == null) {
+            this.occurrences = new WordsOccurrences(this.matcher, this.hitIds, this.hitStarts, this.hitEnds, this.hitCount);
+        }
+        return this.occurrences;
+    }
+
     /**
      * 把敏感词替换为指定字符
      *
      * @param replaceChar 替换字符
-     * @return {@link String } 转换后的字符串
+     * @return {@link String } 转换后的字符串,只替换实际命中的位置
      */
     public String replace(final char replaceChar) {
-        this.init();
-        String content = this.content;
-        final String replaceCharStr = String.valueOf(replaceChar);
+        this.scan();
+        if (this.hitCount == 0) {
+            return this.content;
+        }
 
-        for (final String word : this.matchHintWords) {
-            content = StringUtils.replace(content, word, Strings.repeat(replaceCharStr, word.length()));
+        final String content = this.content;
+        final int[] cover = this.cover(null);
+        final StringBuilder builder = new StringBuilder(content.length());
+        int depth = 0;
+        for (int i = 0; i < content.length(); i++) {
+            depth += cover[i];
+            builder.append(depth > 0 ? replaceChar : content.charAt(i));
         }
 
-        return content;
+        return builder.toString();
     }
 
 
@@ -112,9 +175,8 @@ public class WordsAction {
      * @return {@link String }
      */
     public String highlightOne(String hintWord, String template) {
-        this.init();
-        String content = this.content;
-        return StringUtils.replace(content, hintWord, String.format(template, hintWord));
+        this.scan();
+        return this.highlight(this.cover(hintWord), template);
     }
 
     /**
@@ -131,16 +193,11 @@ public class WordsAction {
      *
      * @param template 高亮模板{@link #HTML_HIGHLIGHT }
      * @return {@link String }
+     * @apiNote 相互重叠或嵌套的命中合并为一段,整段只套用一次模板
      */
     public String highlight(final String template) {
-        this.init();
-        String content = this.content;
-
-        for (final String word : this.matchHintWords) {
-            content = content.replaceAll(word, String.format(template, word));
-        }
-
-        return content;
+        this.scan();
+        return this.highlight(this.cover(null), template);
     }
 
     /**
@@ -152,18 +209,241 @@ public class WordsAction {
         return this.content;
     }
 
-    private void init() {
-        if (this.hintWords == null) {
-            this.hintWords = new LinkedHashMap<>(); // 保证是有序的
+    /**
+     * 扫描整个内容,只记录命中的 id 与位置
+     */
+    private void scan() {
+        if (this.hitIds == null) {
+            this.hitIds = new int[8];
+            this.hitStarts = new int[8];
+            this.hitEnds = new int[8];
 
-            this.mapper.apply(kv -> {
-                this.hintWords.put(kv.v1, kv.v2);
+            this.matcher.scan(this.policy, this.content, (wordId, start, end) -> {
+                this.addHit(wordId, start, end);
                 return false;
             });
+        }
+    }
+
+    /**
+     * 在 {@link #scan()} 的基础上取出被匹配的内容,建立 findAll 的结果
+     */
+    private void init() {
+        this.scan();
+        if (this.hintWords == null) {
+            this.hintWords = new LinkedHashMap<>(); // 保证是有序的
+            for (int i = 0; i < this.hitCount; i++) {
+                this.hintWords.put(this.matcher.word(this.hitIds[i]), this.content.substring(this.hitStarts[i], this.hitEnds[i]));
+            }
 
             this.matchHintWords = this.hintWords.values();
             this.sensitiveWords = this.hintWords.keySet();
         }
     }
 
-}
\ No newline at end of file
+    private void addHit(final int wordId, final int start, final int end) {
+        if (this.hitCount == this.hitStarts.length) {
+            this.hitIds = Arrays.copyOf(this.hitIds, this.hitCount << 1);
+            this.hitStarts = Arrays.copyOf(this.hitStarts, this.hitCount << 1);
+            this.hitEnds = Arrays.copyOf(this.hitEnds, this.hitCount << 1);
+        }
+        this.hitIds[this.hitCount] = wordId;
+        this.hitStarts[this.hitCount] = start;
+        this.hitEnds[this.hitCount] = end;
+        this.hitCount++;
+    }
+
+    /**
+     * 命中覆盖的差分数组: 对 i 求前缀和,大于 0 表示 content[i] 被至少一次命中覆盖
+     *
+     * @param hintWord 只统计敏感词或被匹配内容为 hintWord 的命中,为 null 时统计全部
+     */
+    private int[] cover(final String hintWord) {
+        final int[] cover = new int[this.content.length() + 1];
+        for (int i = 0; i < this.hitCount; i++) {
+            final int start = this.hitStarts[i];
+            final int end = this.hitEnds[i];
+            if (hintWord != null && !hintWord.equals(this.matcher.word(this.hitIds[i]))
+                    && !(hintWord.length() == end - start && this.content.startsWith(hintWord, start))) {
+                continue;
+            }
+            cover[start]++;
+            cover[end]--;
+        }
+        return cover;
+    }
+
+    /**
+     * 按覆盖区间一次遍历生成高亮内容
+     */
+    private String highlight(final int[] cover, final String template) {
+        final String content = this.content;
+        final int length = content.length();
+        // 只有一个 %s 的模板直接拆成前后缀拼接,其余交给 String.format
+        final int placeholder = template.indexOf("%s");
+        final boolean simple = placeholder >= 0 && template.indexOf('%', placeholder + 2) < 0 && template.lastIndexOf('%', placeholder - 1) < 0;
+
+        final StringBuilder builder = new StringBuilder(length + (length >> 1));
+        int depth = 0;
+        int open = -1;
+        for (int i = 0; i <= length; i++) {
+            depth += cover[i];
+            if (depth > 0) {
+                if (open < 0) {
+                    open = i;
+                }
+                continue;
+            }
+
+            if (open >= 0) {
+                if (simple) {
+                    builder.append(template, 0, placeholder).append(content, open, i).append(template, placeholder + 2, template.length());
+                } else {
+                    builder.append(String.format(template, content.substring(open, i)));
+                }
+                open = -1;
+            }
+
+            if (i < length) {
+                builder.append(content.charAt(i));
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * 一次命中
+     */
+    public static final class Hit {
+
+        private final WordsMatcher matcher;
+        private final String content;
+        private final int wordId;
+        private final int start;
+        private final int end;
+
+        private Hit(final WordsMatcher matcher, final String content, final int wordId, final int start, final int end) {
+            this.matcher = matcher;
+            this.content = content;
+            this.wordId = wordId;
+            this.start = start;
+            this.end = end;
+        }
+
+        public int wordId() {
+            return this.wordId;
+        }
+
+        /**
+         * 敏感词
+         */
+        public String word() {
+            return this.matcher.word(this.wordId);
+        }
+
+        /**
+         * 被匹配到的内容
+         */
+        public String text() {
+            return this.content.substring(this.start, this.end);
+        }
+
+        /**
+         * 起始位置(包含)
+         */
+        public int start() {
+            return this.start;
+        }
+
+        /**
+         * 结束位置(不包含)
+         */
+        public int end() {
+            return this.end;
+        }
+
+        @Override
+        public String toString() {
+            return this.word() + "[" + this.start + ", " + this.end + ")";
+        }
+    }
+
+    /**
+     * 遍历已经缓存的命中
+     */
+    private final class CachedHits implements Iterator<Hit> {
+
+        private int next;
+
+        @Override
+        public boolean hasNext() {
+            return this.next < WordsAction.this.hitCount;
+        }
+
+        @Override
+        public Hit next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final int i = this.next++;
+            return new Hit(WordsAction.this.matcher, WordsAction.this.content,
+                    WordsAction.this.hitIds[i], WordsAction.this.hitStarts[i], WordsAction.this.hitEnds[i]);
+        }
+    }
+
+    /**
+     * 边扫描边返回命中: 内容按 {@link #CHUNK} 个字符分块交给 {@link WordsSession},一块中的命中先缓冲起来
+     */
+    private final class LazyHits implements Iterator<Hit>, WordsMatcher.StreamHitHandler {
+
+        private static final int CHUNK = 64;
+
+        private final WordsSession session = WordsAction.this.matcher.session(WordsAction.this.policy, this);
+        private int position;
+        private int[] ids = new int[4];
+        private int[] starts = new int[4];
+        private int[] ends = new int[4];
+        private int head;
+        private int tail;
+
+        @Override
+        public boolean hasNext() {
+            final String content = WordsAction.this.content;
+            final int length = content == null ? 0 : content.length();
+            while (this.head == this.tail && this.position < length && !this.session.stopped()) {
+                this.head = this.tail = 0;
+                final int end = Math.min(this.position + CHUNK, length);
+                this.session.feed(content, this.position, end);
+                this.position = end;
+                if (end == length) {
+                    this.session.finish();
+                }
+            }
+            return this.head < this.tail;
+        }
+
+        @Override
+        public Hit next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final int k = this.head++;
+            return new Hit(WordsAction.this.matcher, WordsAction.this.content, this.ids[k], this.starts[k], this.ends[k]);
+        }
+
+        @Override
+        public boolean apply(final int wordId, final long start, final long end) {
+            if (this.tail == this.ids.length) {
+                this.ids = Arrays.copyOf(this.ids, this.tail << 1);
+                this.starts = Arrays.copyOf(this.starts, this.tail << 1);
+                this.ends = Arrays.copyOf(this.ends, this.tail << 1);
+            }
+            this.ids[this.tail] = wordId;
+            this.starts[this.tail] = (int) start;
+            this.ends[this.tail] = (int) end;
+            this.tail++;
+            return false;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package io.github.fzdwx.words;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * 批量匹配的结果
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote 由 {@link WordsMatcher#matchAll(boolean, List, Executor)} 得到。<pre>
+ *     1.所有内容的命中依次存放在三个 int 数组中,第 i 条内容的命中为 [offsets[i], offsets[i + 1])
+ *     2.每条内容不创建 {@link WordsAction}、lambda 或其他对象,每个批次只有固定几个数组
+ *     3.批次之间互不影响,分给执行器并行执行
+ * </pre>
+ * @date 2026/10/17 17:20
+ */
+public final class WordsHits {
+
+    /**
+     * 每个批次至少包含的内容条数,避免为很少的内容调度任务
+     */
+    private static final int MIN_BATCH = 16;
+
+    private final WordsMatcher matcher;
+    private final int[] offsets;
+    private final int[] ids;
+    private final int[] starts;
+    private final int[] ends;
+
+    private WordsHits(final WordsMatcher matcher, final int[] offsets, final int[] ids, final int[] starts, final int[] ends) {
+        this.matcher = matcher;
+        this.offsets = offsets;
+        this.ids = ids;
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * 内容条数
+     */
+    public int size() {
+        return this.offsets.length - 1;
+    }
+
+    /**
+     * 第 message 条内容的命中次数
+     */
+    public int count(final int message) {
+        return this.offsets[message + 1] - this.offsets[message];
+    }
+
+    /**
+     * 第 message 条内容是否包含敏感词
+     */
+    public boolean matched(final int message) {
+        return this.count(message) > 0;
+    }
+
+    /**
+     * 第 message 条内容的第 k 次命中的敏感词 id
+     */
+    public int wordId(final int message, final int k) {
+        return this.ids[this.index(message, k)];
+    }
+
+    /**
+     * 第 message 条内容的第 k 次命中的敏感词
+     */
+    public String word(final int message, final int k) {
+        return this.matcher.word(this.wordId(message, k));
+    }
+
+    /**
+     * 第 message 条内容的第 k 次命中的起始位置(包含)
+     */
+    public int start(final int message, final int k) {
+        return this.starts[this.index(message, k)];
+    }
+
+    /**
+     * 第 message 条内容的第 k 次命中的结束位置(不包含)
+     */
+    public int end(final int message, final int k) {
+        return this.ends[this.index(message, k)];
+    }
+
+    private int index(final int message, final int k) {
+        if (k < 0 || k >= this.count(message)) {
+            throw new IndexOutOfBoundsException("hit: " + k);
+        }
+        return this.offsets[message] + k;
+    }
+
+    static WordsHits match(final WordsMatcher matcher, final boolean partMatch, final List<String> contents, final Executor executor) {
+        final int size = contents.size();
+        final int tasks = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() << 2, size / MIN_BATCH));
+        final int step = (size + tasks - 1) / Math.max(1, tasks);
+
+        final List<Batch> batches = new ArrayList<>(tasks);
+        final List<CompletableFuture<Void>> futures = new ArrayList<>(tasks);
+        for (int from = 0; from < size; from += step) {
+            final Batch batch = new Batch(matcher, partMatch, contents, from, Math.min(from + step, size));
+            batches.add(batch);
+            futures.add(CompletableFuture.runAsync(batch, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        int total = 0;
+        for (final Batch batch : batches) {
+            total += batch.hitCount;
+        }
+        final int[] offsets = new int[size + 1];
+        final int[] ids = new int[total];
+        final int[] starts = new int[total];
+        final int[] ends = new int[total];
+        int hit = 0;
+        for (final Batch batch : batches) {
+            for (int i = batch.from; i < batch.to; i++) {
+                offsets[i + 1] = offsets[i] + batch.counts[i - batch.from];
+            }
+            System.arraycopy(batch.ids, 0, ids, hit, batch.hitCount);
+            System.arraycopy(batch.starts, 0, starts, hit, batch.hitCount);
+            System.arraycopy(batch.ends, 0, ends, hit, batch.hitCount);
+            hit += batch.hitCount;
+        }
+        return new WordsHits(matcher, offsets, ids, starts, ends);
+    }
+
+    /**
+     * 一个批次: 依次扫描 [from, to) 的内容,自身即为所有内容共用的 handler
+     */
+    private static final class Batch implements Runnable, WordsMatcher.HitHandler {
+
+        private final WordsMatcher matcher;
+        private final boolean partMatch;
+        private final List<String> contents;
+        private final int from;
+        private final int to;
+        private final int[] counts;
+        private int[] ids = new int[16];
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private int hitCount;
+
+        private Batch(final WordsMatcher matcher, final boolean partMatch, final List<String> contents, final int from, final int to) {
+            this.matcher = matcher;
+            this.partMatch = partMatch;
+            this.contents = contents;
+            this.from = from;
+            this.to = to;
+            this.counts = new int[to - from];
+        }
+
+        @Override
+        public void run() {
+            for (int i = this.from; i < this.to; i++) {
+                final int before = this.hitCount;
+                this.matcher.scan(this.partMatch, this.contents.get(i), this);
+                this.counts[i - this.from] = this.hitCount - before;
+            }
+        }
+
+        @Override
+        public boolean apply(final int wordId, final int start, final int end) {
+            if (this.hitCount == this.ids.length) {
+                final int capacity = this.hitCount << 1;
+                this.ids = Arrays.copyOf(this.ids, capacity);
+                this.starts = Arrays.copyOf(this.starts, capacity);
+                this.ends = Arrays.copyOf(this.ends, capacity);
+            }
+            this.ids[this.hitCount] = wordId;
+            this.starts[this.hitCount] = start;
+            this.ends[this.hitCount] = end;
+            this.hitCount++;
+            return false;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package io.github.fzdwx.words;
 
 
 import cn.hutool.core.util.CharUtil;
+import io.github.fzdwx.lambada.Tuple;
 import io.github.fzdwx.lambada.fun.State;
 import io.github.fzdwx.lambada.internal.Tuple2;
 import io.github.fzdwx.words.internal.dfa.AccurateWordsMatcher;
@@ -9,15 +10,24 @@ import io.github.fzdwx.words.internal.dfa.FuzzWordsMatcher;
 import io.github.fzdwx.words.internal.dfa.MixWordsMatcher;
 import org.apache.commons.lang3.StringUtils;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
  * @apiNote <pre>
  *     1.单字符不支持
  *     2.部分匹配是匹配到敏感词后立即退出当前匹配；而完整匹配会把所有词都匹配出来，也就是把敏感词中的小词也匹配到。
+ *       更细的取舍见 {@link MatchPolicy},部分匹配即 {@link MatchPolicy#LEFTMOST_SHORTEST}
  *     3.英文敏感词都转换成小写
  * </pre>
  * @date 2022/3/10 15:43
@@ -52,6 +62,16 @@ public interface WordsMatcher {
         return MixWordsMatcher.create(accurateCollection, fuzzCollection);
     }
 
+    /**
+     * 包装一个匹配器,记录扫描耗时、扫描的字符数、推进trie的字符数、每个敏感词的命中次数与 refresh 耗时
+     *
+     * @param matcher 被包装的匹配器
+     * @return {@link MeteredWordsMatcher } 度量数据见 {@link MeteredWordsMatcher#metrics()}
+     */
+    static MeteredWordsMatcher metered(final WordsMatcher matcher) {
+        return new MeteredWordsMatcher(matcher);
+    }
+
     /**
      * @return {@link String } word
      */
@@ -113,18 +133,154 @@ public interface WordsMatcher {
      * @return boolean 是否包含敏感词
      * @throws RuntimeException 运行时异常
      */
-    boolean process(boolean partMatch, String content, Handler handle);
+    default boolean process(boolean partMatch, String content, Handler handle) {
+        return this.scan(partMatch, content, (wordId, start, end) -> handle.apply(Tuple.of(this.word(wordId), content.substring(start, end))));
+    }
+
+    /**
+     * 并行判断一段很长的文字包含敏感词语,回调与 {@link #process(boolean, String, Handler)} 完全一致
+     *
+     * @param partMatch 部分匹配（粒度）,部分匹配只能顺序执行
+     * @param content   内容
+     * @param pool      执行并行扫描的线程池
+     * @param handle    处理
+     * @return boolean 是否包含敏感词
+     */
+    default boolean process(final boolean partMatch, final String content, final ForkJoinPool pool, final Handler handle) {
+        return this.scan(partMatch, content, pool, (wordId, start, end) -> handle.apply(Tuple.of(this.word(wordId), content.substring(start, end))));
+    }
+
+    /**
+     * 并行扫描一段很长的文字,回调的命中及其顺序与 {@link #scan(MatchPolicy, String, HitHandler)} 完全一致
+     *
+     * @param policy  匹配策略,不重叠的策略依赖前面的命中,只能顺序执行
+     * @param content 内容,切成若干段在 pool 上并行扫描,所有段完成后再依次回调 handle
+     * @param pool    执行并行扫描的线程池
+     * @param handle  处理
+     * @return boolean handle 要求停止时返回 true
+     */
+    boolean scan(MatchPolicy policy, String content, ForkJoinPool pool, HitHandler handle);
+
+    /**
+     * @param partMatch 部分匹配（粒度）,见 {@link MatchPolicy#of(boolean)}
+     * @see #scan(MatchPolicy, String, ForkJoinPool, HitHandler)
+     */
+    default boolean scan(final boolean partMatch, final String content, final ForkJoinPool pool, final HitHandler handle) {
+        return this.scan(MatchPolicy.of(partMatch), content, pool, handle);
+    }
+
+    /**
+     * 扫描一段文字,命中时回调敏感词 id 及其在 content 中的位置,回调本身不产生任何对象
+     *
+     * @param policy  匹配策略
+     * @param content 内容,首尾空白不参与匹配,但位置仍以原内容为准
+     * @param handle  处理
+     * @return boolean handle 要求停止时返回 true
+     */
+    boolean scan(MatchPolicy policy, String content, HitHandler handle);
+
+    /**
+     * @param partMatch 部分匹配（粒度）,见 {@link MatchPolicy#of(boolean)}
+     * @see #scan(MatchPolicy, String, HitHandler)
+     */
+    default boolean scan(final boolean partMatch, final String content, final HitHandler handle) {
+        return this.scan(MatchPolicy.of(partMatch), content, handle);
+    }
+
+    /**
+     * 开启一个流式匹配会话,内容可以分块交给会话,跨块的敏感词也能命中
+     *
+     * @param policy 匹配策略
+     * @param handle 处理,位置为从会话开始的绝对位置
+     * @return {@link WordsSession }
+     */
+    WordsSession session(MatchPolicy policy, StreamHitHandler handle);
+
+    /**
+     * @param partMatch 部分匹配（粒度）,见 {@link MatchPolicy#of(boolean)}
+     * @see #session(MatchPolicy, StreamHitHandler)
+     */
+    default WordsSession session(final boolean partMatch, final StreamHitHandler handle) {
+        return this.session(MatchPolicy.of(partMatch), handle);
+    }
+
+    /**
+     * 流式扫描 reader 直到结束,内存占用与内容长度无关
+     *
+     * @param partMatch 部分匹配（粒度）
+     * @param reader    内容,不会被关闭
+     * @param handle    处理,位置为从 reader 当前位置开始的绝对位置
+     * @return boolean handle 要求停止时返回 true
+     */
+    default boolean scan(final boolean partMatch, final Reader reader, final StreamHitHandler handle) throws IOException {
+        final WordsSession session = this.session(partMatch, handle);
+        session.feed(reader);
+        return session.finish();
+    }
+
+    /**
+     * 扫描 UTF-8 文件,文件通过 NIO 分段内存映射,边解码边匹配,不会把整个文件读到堆上
+     *
+     * @param policy 匹配策略
+     * @param path   UTF-8 文件,非法的字节按 U+FFFD 处理
+     * @param handle 处理,位置为字节位置
+     * @return boolean handle 要求停止时返回 true
+     */
+    boolean scan(MatchPolicy policy, Path path, FileHitHandler handle) throws IOException;
+
+    /**
+     * @param partMatch 部分匹配（粒度）,见 {@link MatchPolicy#of(boolean)}
+     * @see #scan(MatchPolicy, Path, FileHitHandler)
+     */
+    default boolean scan(final boolean partMatch, final Path path, final FileHitHandler handle) throws IOException {
+        return this.scan(MatchPolicy.of(partMatch), path, handle);
+    }
+
+    /**
+     * 根据 id 取得敏感词
+     *
+     * @apiNote id 在 {@link #put(String)}、{@link #remove(String)} 与 {@link #applyDelta(Collection, Collection)} 前后保持不变;
+     * {@link #refresh(Collection)} 按新词库重新分配 id,refresh 前命中的 id 应在 refresh 前取出敏感词
+     * @param wordId {@link HitHandler} 回调中的敏感词 id
+     * @return {@link String } 敏感词
+     */
+    String word(int wordId);
+
+    /**
+     * 分配过 id 的敏感词的个数,删除的词仍然占用 id,直到下一次 {@link #refresh(Collection)}
+     *
+     * @return int {@link HitHandler} 回调中的 id 都小于这个值
+     */
+    int wordCount();
 
     /**
      * 添加敏感词
      *
      * @param word 敏感词
      * @return boolean 是否添加成功
+     * @apiNote 可以与匹配并发调用: put 返回之后开始的匹配一定能命中新词,put 期间已经开始的匹配不保证
      */
     State<Void> put(String word);
 
     /**
-     * 刷新
+     * 删除敏感词,不再通向任何敏感词的节点会被剪掉
+     *
+     * @param word 敏感词
+     * @return boolean 是否删除成功,敏感词不存在时失败
+     * @apiNote 可见性与 {@link #put(String)} 一致
+     */
+    State<Void> remove(String word);
+
+    /**
+     * 增量更新: 先删除 removed 再添加 added,只修改变化的部分,不重建整个词库
+     *
+     * @param added   新增的敏感词,不合法的词被忽略(与 {@link #refresh(Collection)} 一致),可以为 null
+     * @param removed 删除的敏感词,不存在的词被忽略,可以为 null
+     */
+    WordsMatcher applyDelta(Collection<String> added, Collection<String> removed);
+
+    /**
+     * 刷新: 整体替换词库,并按新词库重新分配 id
      *
      * @param words 新敏感词组
      */
@@ -144,7 +300,18 @@ public interface WordsMatcher {
      * @return {@link WordsAction }
      */
     default WordsAction action(final String content) {
-        return new WordsAction(content, (h) -> this.process(false, content, h));
+        return new WordsAction(content, this, MatchPolicy.ALL);
+    }
+
+    /**
+     * 按指定的策略匹配,例如 {@link MatchPolicy#LEFTMOST_LONGEST} 时一次替换就能完整遮住最长的敏感词
+     *
+     * @param content 需要匹配的内容
+     * @param policy  匹配策略
+     * @return {@link WordsAction }
+     */
+    default WordsAction action(final String content, final MatchPolicy policy) {
+        return new WordsAction(content, this, policy);
     }
 
     /**
@@ -154,7 +321,39 @@ public interface WordsMatcher {
      * @return {@link WordsAction }
      */
     default WordsAction actionFast(final String content) {
-        return new WordsAction(content, (h) -> this.process(true, content, h));
+        return new WordsAction(content, this, MatchPolicy.LEFTMOST_SHORTEST);
+    }
+
+    /**
+     * 批量匹配,在 {@link ForkJoinPool#commonPool()} 上并行执行
+     *
+     * @param contents 内容
+     * @return {@link WordsHits } 每条内容的命中,与逐条 {@link #scan(boolean, String, HitHandler)} 一致
+     */
+    default WordsHits matchAll(final List<String> contents) {
+        return this.matchAll(false, contents, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 批量匹配,内容分成若干批次交给 executor 并行执行,调用线程等待全部完成
+     *
+     * @param partMatch 部分匹配（粒度）
+     * @param contents  内容,需要支持随机访问
+     * @param executor  执行器
+     * @return {@link WordsHits } 第 i 条为 contents 中第 i 条内容的命中
+     */
+    default WordsHits matchAll(final boolean partMatch, final List<String> contents, final Executor executor) {
+        return WordsHits.match(this, partMatch, contents, executor);
+    }
+
+    /**
+     * 批量匹配,见 {@link #matchAll(List)}
+     *
+     * @param contents 内容,会先被收集为 list
+     * @return {@link WordsHits } 第 i 条为流中第 i 条内容的命中
+     */
+    default WordsHits findAll(final Stream<String> contents) {
+        return this.matchAll(contents.collect(Collectors.toList()));
     }
 
     /**
@@ -242,4 +441,46 @@ public interface WordsMatcher {
     interface Handler extends Function<Tuple2<String, String>, Boolean> {
 
     }
-}
\ No newline at end of file
+
+    /**
+     * wordsMatcher 匹配后的回调,只携带基本类型,命中时不产生任何对象
+     *
+     * @apiNote <pre>
+     *     wordId: 实际敏感词的 id,通过 {@link WordsMatcher#word(int)} 取得敏感词
+     *     start,end: 被匹配到的内容在 content 中的位置 [start, end)
+     *     boolean: 是否停止匹配
+     * </pre>
+     */
+    @FunctionalInterface
+    interface HitHandler {
+
+        boolean apply(int wordId, int start, int end);
+    }
+
+    /**
+     * 流式匹配的回调,与 {@link HitHandler} 相同,只是位置为从会话开始的绝对位置
+     *
+     * @apiNote <pre>
+     *     start,end: 被匹配到的内容在整个输入中的位置 [start, end)
+     * </pre>
+     */
+    @FunctionalInterface
+    interface StreamHitHandler {
+
+        boolean apply(int wordId, long start, long end);
+    }
+
+    /**
+     * 文件匹配的回调
+     *
+     * @apiNote <pre>
+     *     line: 命中内容起始处所在的行,从 1 开始
+     *     start,end: 被匹配到的内容在文件中的字节位置 [start, end)
+     * </pre>
+     */
+    @FunctionalInterface
+    interface FileHitHandler {
+
+        boolean apply(int wordId, long line, long start, long end);
+    }
+}
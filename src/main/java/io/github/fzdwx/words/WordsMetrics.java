@@ -0,0 +1,344 @@
+package io.github.fzdwx.words;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * 匹配的度量数据
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote 由 {@link MeteredWordsMatcher} 记录,没有包装的匹配器不做任何记录。<pre>
+ *     1.计数都是 {@link LongAdder},并发匹配的线程写入不同的 cell,不争用同一个缓存行
+ *     2.耗时按 2 的幂(纳秒)分桶,{@link Latency#percentile(double)} 返回所在桶的上界,误差不超过一倍
+ *     3.每个敏感词的命中次数按 id 计数,计数器数组按 {@link WordsMatcher#wordCount()} 分配,词库变化后扩容;{@link #snapshot()} 时才取出敏感词。
+ *       refresh 重新分配 id 后按词重排计数器,不在新词库中的词的计数随之丢弃,数组大小只取决于当前词库
+ *     4.{@link #export(Exporter)} 把快照交给 {@link Exporter},接入日志、Prometheus 等由 Exporter 实现
+ * </pre>
+ * @date 2026/10/17 20:30
+ */
+public final class WordsMetrics {
+
+    private final IntFunction<String> words;
+
+    private final LongAdder scans = new LongAdder();
+    private final LongAdder chars = new LongAdder();
+    private final LongAdder visited = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final Histogram scanLatency = new Histogram();
+    private final Histogram refreshLatency = new Histogram();
+
+    /**
+     * wordHits[id] 为敏感词的命中次数;扩容时复制计数器的引用,并发的计数不会丢失
+     */
+    private volatile LongAdder[] wordHits = new LongAdder[0];
+
+    /**
+     * @param words     根据 id 取得敏感词,见 {@link WordsMatcher#word(int)}
+     * @param wordCount 敏感词的个数,见 {@link WordsMatcher#wordCount()}
+     */
+    WordsMetrics(final IntFunction<String> words, final int wordCount) {
+        this.words = words;
+        this.words(wordCount);
+    }
+
+    /**
+     * 词库变化后,保证 id 小于 wordCount 的敏感词都有计数器
+     */
+    synchronized void words(final int wordCount) {
+        final LongAdder[] wordHits = this.wordHits;
+        if (wordCount <= wordHits.length) {
+            return;
+        }
+
+        final LongAdder[] grown = Arrays.copyOf(wordHits, Math.max(wordCount, wordHits.length + (wordHits.length >> 1)));
+        for (int i = wordHits.length; i < grown.length; i++) {
+            grown[i] = new LongAdder();
+        }
+        this.wordHits = grown;
+    }
+
+    /**
+     * refresh 按新词库重新分配了 id: 仍在词库中的词沿用原来的计数器,其余的丢弃
+     *
+     * @param before    refresh 前按 id 排列的敏感词
+     * @param wordCount refresh 后敏感词的个数
+     */
+    synchronized void words(final String[] before, final int wordCount) {
+        final LongAdder[] wordHits = this.wordHits;
+        final Map<String, LongAdder> kept = new HashMap<>();
+        for (int i = 0; i < before.length && i < wordHits.length; i++) {
+            kept.put(before[i], wordHits[i]);
+        }
+
+        final LongAdder[] compacted = new LongAdder[wordCount];
+        for (int i = 0; i < wordCount; i++) {
+            final LongAdder adder = kept.get(this.words.apply(i));
+            compacted[i] = adder == null ? new LongAdder() : adder;
+        }
+        this.wordHits = compacted;
+    }
+
+    /**
+     * 一次扫描结束
+     *
+     * @param nanos   耗时,小于 0 时不记录耗时(流式会话)
+     * @param chars   扫描的字符数
+     * @param visited 推进trie的字符数,见 {@link WordsSession#visited()}
+     */
+    void scan(final long nanos, final long chars, final long visited) {
+        this.scans.increment();
+        this.chars.add(chars);
+        this.visited.add(visited);
+        if (nanos >= 0) {
+            this.scanLatency.record(nanos);
+        }
+    }
+
+    void hit(final int wordId) {
+        this.hits.increment();
+        LongAdder[] wordHits = this.wordHits;
+        if (wordId >= wordHits.length) {
+            // 绕过包装直接修改了被包装的匹配器
+            this.words(wordId + 1);
+            wordHits = this.wordHits;
+        }
+        wordHits[wordId].increment();
+    }
+
+    void refresh(final long nanos) {
+        this.refreshLatency.record(nanos);
+    }
+
+    /**
+     * 当前的度量数据,各项分别读取,并发写入时彼此之间不保证是同一时刻的值
+     */
+    public Snapshot snapshot() {
+        final LongAdder[] adders = this.wordHits;
+        final long[] counts = new long[adders.length];
+        final List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = adders[i].sum();
+            if (counts[i] != 0) {
+                order.add(i);
+            }
+        }
+        order.sort((a, b) -> Long.compare(counts[b], counts[a]));
+
+        final Map<String, Long> wordHits = new LinkedHashMap<>();
+        for (final Integer i : order) {
+            wordHits.put(this.words.apply(i), counts[i]);
+        }
+        return new Snapshot(this.scans.sum(), this.chars.sum(), this.visited.sum(), this.hits.sum(),
+                this.scanLatency.snapshot(), this.refreshLatency.snapshot(), Collections.unmodifiableMap(wordHits));
+    }
+
+    /**
+     * 导出当前的度量数据
+     */
+    public void export(final Exporter exporter) {
+        exporter.export(this.snapshot());
+    }
+
+    /**
+     * 定期导出
+     *
+     * @return {@link ScheduledFuture } 取消后停止导出
+     */
+    public ScheduledFuture<?> schedule(final ScheduledExecutorService executor, final long period, final TimeUnit unit, final Exporter exporter) {
+        return executor.scheduleAtFixedRate(() -> this.export(exporter), period, period, unit);
+    }
+
+    /**
+     * 度量数据的导出
+     */
+    @FunctionalInterface
+    public interface Exporter {
+
+        void export(Snapshot snapshot);
+    }
+
+    /**
+     * 度量数据的快照
+     */
+    public static final class Snapshot {
+
+        private final long scans;
+        private final long chars;
+        private final long visited;
+        private final long hits;
+        private final Latency scanLatency;
+        private final Latency refreshLatency;
+        private final Map<String, Long> wordHits;
+
+        private Snapshot(final long scans, final long chars, final long visited, final long hits,
+                         final Latency scanLatency, final Latency refreshLatency, final Map<String, Long> wordHits) {
+            this.scans = scans;
+            this.chars = chars;
+            this.visited = visited;
+            this.hits = hits;
+            this.scanLatency = scanLatency;
+            this.refreshLatency = refreshLatency;
+            this.wordHits = wordHits;
+        }
+
+        /**
+         * 扫描次数
+         */
+        public long scans() {
+            return this.scans;
+        }
+
+        /**
+         * 扫描的字符数
+         */
+        public long chars() {
+            return this.chars;
+        }
+
+        /**
+         * 推进trie的字符数,与 {@link #chars()} 之比反映首字符过滤器跳过的比例
+         */
+        public long visited() {
+            return this.visited;
+        }
+
+        /**
+         * 命中次数
+         */
+        public long hits() {
+            return this.hits;
+        }
+
+        /**
+         * 扫描耗时,不包括流式会话
+         */
+        public Latency scanLatency() {
+            return this.scanLatency;
+        }
+
+        /**
+         * refresh 与 applyDelta 的耗时
+         */
+        public Latency refreshLatency() {
+            return this.refreshLatency;
+        }
+
+        /**
+         * 每个敏感词的命中次数,按次数由多到少
+         */
+        public Map<String, Long> wordHits() {
+            return this.wordHits;
+        }
+
+        @Override
+        public String toString() {
+            return "scans=" + this.scans + ", chars=" + this.chars + ", visited=" + this.visited + ", hits=" + this.hits
+                    + ", scanLatency={" + this.scanLatency + "}, refreshLatency={" + this.refreshLatency + "}";
+        }
+    }
+
+    /**
+     * 耗时分布的快照,单位为纳秒
+     */
+    public static final class Latency {
+
+        /**
+         * buckets[0] 为 0,buckets[i] 为 [2^(i-1), 2^i)
+         */
+        private final long[] buckets;
+        private final long count;
+        private final long total;
+        private final long max;
+
+        private Latency(final long[] buckets, final long total, final long max) {
+            long count = 0;
+            for (final long bucket : buckets) {
+                count += bucket;
+            }
+            this.buckets = buckets;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        public long count() {
+            return this.count;
+        }
+
+        public long total() {
+            return this.total;
+        }
+
+        public long max() {
+            return this.max;
+        }
+
+        public double mean() {
+            return this.count == 0 ? 0 : (double) this.total / this.count;
+        }
+
+        /**
+         * @param q 分位,如 0.99
+         * @return 不小于该分位的耗时的近似值(所在桶的上界,不超过最大值)
+         */
+        public long percentile(final double q) {
+            if (this.count == 0) {
+                return 0;
+            }
+            final long rank = (long) Math.ceil(q * this.count);
+            long seen = 0;
+            for (int i = 0; i < this.buckets.length; i++) {
+                seen += this.buckets[i];
+                if (seen >= rank && seen > 0) {
+                    return i == 0 ? 0 : Math.min(this.max, (1L << i) - 1);
+                }
+            }
+            return this.max;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + this.count + ", mean=" + (long) this.mean() + "ns, p50=" + this.percentile(0.5)
+                    + "ns, p99=" + this.percentile(0.99) + "ns, max=" + this.max + "ns";
+        }
+    }
+
+    private static final class Histogram {
+
+        private final LongAdder[] buckets = new LongAdder[Long.SIZE];
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private Histogram() {
+            for (int i = 0; i < this.buckets.length; i++) {
+                this.buckets[i] = new LongAdder();
+            }
+        }
+
+        private void record(long nanos) {
+            nanos = Math.max(nanos, 0);
+            this.buckets[Math.min(Long.SIZE - Long.numberOfLeadingZeros(nanos), Long.SIZE - 1)].increment();
+            this.total.add(nanos);
+            this.max.accumulate(nanos);
+        }
+
+        private Latency snapshot() {
+            final long[] buckets = new long[this.buckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = this.buckets[i].sum();
+            }
+            return new Latency(buckets, this.total.sum(), this.max.get());
+        }
+    }
+}
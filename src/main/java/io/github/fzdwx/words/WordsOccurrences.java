@@ -0,0 +1,153 @@
+package io.github.fzdwx.words;
+
+/**
+ * 每一次命中及每个敏感词的命中次数
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote 由 {@link WordsAction#findAllOccurrences()} 得到。<pre>
+ *     1.命中按顺序存放在 id/start/end 三个平行的 int 数组中,同一个敏感词的多次命中都会保留
+ *     2.按敏感词首次命中的顺序统计次数,与 {@link WordsAction#findAll()} 的 key 顺序一致
+ *     3.敏感词与被匹配内容只在调用 {@link #word(int)} 等方法时才取得,不额外创建 String
+ * </pre>
+ * @date 2026/10/17 20:10
+ */
+public final class WordsOccurrences {
+
+    private final WordsMatcher matcher;
+    private final int[] ids;
+    private final int[] starts;
+    private final int[] ends;
+    private final int size;
+
+    /**
+     * 按首次命中顺序的敏感词 id 与命中次数
+     */
+    private final int[] distinctIds;
+    private final int[] counts;
+    private final int distinctCount;
+
+    /**
+     * 敏感词 id -> distinctIds 下标 + 1 的开放寻址表,0 表示空位
+     */
+    private final int[] table;
+
+    WordsOccurrences(final WordsMatcher matcher, final int[] ids, final int[] starts, final int[] ends, final int size) {
+        this.matcher = matcher;
+        this.ids = ids;
+        this.starts = starts;
+        this.ends = ends;
+        this.size = size;
+
+        this.table = new int[Integer.highestOneBit(Math.max(1, size) << 1) << 1];
+        final int[] distinctIds = new int[size];
+        final int[] counts = new int[size];
+        int distinctCount = 0;
+        for (int i = 0; i < size; i++) {
+            final int slot = slot(this.table, distinctIds, ids[i]);
+            if (this.table[slot] == 0) {
+                distinctIds[distinctCount] = ids[i];
+                this.table[slot] = ++distinctCount;
+            }
+            counts[this.table[slot] - 1]++;
+        }
+        this.distinctIds = distinctIds;
+        this.counts = counts;
+        this.distinctCount = distinctCount;
+    }
+
+    /**
+     * 命中次数
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public int wordId(final int i) {
+        return this.ids[this.check(i)];
+    }
+
+    /**
+     * 第 i 次命中的敏感词
+     */
+    public String word(final int i) {
+        return this.matcher.word(this.wordId(i));
+    }
+
+    /**
+     * 第 i 次命中的起始位置(包含)
+     */
+    public int start(final int i) {
+        return this.starts[this.check(i)];
+    }
+
+    /**
+     * 第 i 次命中的结束位置(不包含)
+     */
+    public int end(final int i) {
+        return this.ends[this.check(i)];
+    }
+
+    /**
+     * 命中的敏感词个数(去重)
+     */
+    public int distinctCount() {
+        return this.distinctCount;
+    }
+
+    /**
+     * 第 k 个(按首次命中顺序)敏感词的 id
+     */
+    public int distinctWordId(final int k) {
+        if (k < 0 || k >= this.distinctCount) {
+            throw new IndexOutOfBoundsException("word: " + k);
+        }
+        return this.distinctIds[k];
+    }
+
+    /**
+     * 第 k 个(按首次命中顺序)敏感词
+     */
+    public String distinctWord(final int k) {
+        return this.matcher.word(this.distinctWordId(k));
+    }
+
+    /**
+     * 第 k 个(按首次命中顺序)敏感词的命中次数
+     */
+    public int count(final int k) {
+        this.distinctWordId(k);
+        return this.counts[k];
+    }
+
+    /**
+     * 敏感词的命中次数
+     *
+     * @param wordId 敏感词 id
+     * @return int 没有命中时为 0
+     */
+    public int countOf(final int wordId) {
+        final int index = this.table[slot(this.table, this.distinctIds, wordId)];
+        return index == 0 ? 0 : this.counts[index - 1];
+    }
+
+    /**
+     * wordId 所在或应该插入的位置
+     */
+    private static int slot(final int[] table, final int[] distinctIds, final int wordId) {
+        final int mask = table.length - 1;
+        final int h = wordId * 0x9E3779B9;
+        int i = (h ^ (h >>> 16)) & mask;
+        int index;
+        while ((index = table[i]) != 0 && distinctIds[index - 1] != wordId) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private int check(final int i) {
+        if (i < 0 || i >= this.size) {
+            throw new IndexOutOfBoundsException("occurrence: " + i);
+        }
+        return i;
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.fzdwx.words;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * 流式匹配会话
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote 由 {@link WordsMatcher#session(MatchPolicy, WordsMatcher.StreamHitHandler)} 创建。<pre>
+ *     1.内容可以分任意多块依次交给会话,trie游标与模糊匹配的跳过状态跨块保留,跨块的敏感词也能命中
+ *     2.会话只保存游标与还没有确定的命中,不保存内容。游标跨越的字符数有上限: 精确匹配不超过最长的词,
+ *       模糊匹配中词的相邻两个字之间最多跳过 32 个字符(系统属性 words.fuzz.maxSkip);
+ *       不重叠的策略在没有游标能给出更优的命中后立即回调,内存占用因此与最长的词成正比,与内容长度无关
+ *     3.命中位置为从会话开始的绝对位置;与 {@link WordsMatcher#scan(boolean, String, WordsMatcher.HitHandler)} 不同,首尾空白不做裁剪
+ *     4.handler 要求停止后,之后的内容都会被忽略
+ *     5.会话不是线程安全的,一个会话只能由一个线程使用
+ *     6.不重叠的 {@link MatchPolicy} 会等待之后的内容才确定命中,内容结束时需要调用 {@link #finish()}
+ * </pre>
+ * @date 2026/10/17 16:10
+ */
+public interface WordsSession {
+
+    /**
+     * 推进一段内容
+     *
+     * @return boolean handler 要求停止时返回 true
+     */
+    boolean feed(CharSequence chunk);
+
+    /**
+     * 推进 chunk[start, end),不复制内容
+     *
+     * @return boolean handler 要求停止时返回 true
+     */
+    boolean feed(CharSequence chunk, int start, int end);
+
+    /**
+     * 推进 chars[offset, offset + length)
+     *
+     * @return boolean handler 要求停止时返回 true
+     */
+    boolean feed(char[] chars, int offset, int length);
+
+    /**
+     * 推进 buffer 中剩余的内容,buffer 的 position 会移到 limit
+     *
+     * @return boolean handler 要求停止时返回 true
+     */
+    boolean feed(CharBuffer buffer);
+
+    /**
+     * 分块读取并推进 reader 中剩余的内容,reader 不会被关闭
+     *
+     * @return boolean handler 要求停止时返回 true
+     */
+    boolean feed(Reader reader) throws IOException;
+
+    /**
+     * 内容结束,回调还在等待确定的命中;{@link MatchPolicy#ALL} 没有等待的命中
+     *
+     * @return boolean handler 要求停止时返回 true
+     */
+    boolean finish();
+
+    /**
+     * 已经推进的字符数,即下一个字符的绝对位置
+     */
+    long position();
+
+    /**
+     * 推进过trie的字符数,即 {@link #position()} 减去首字符过滤器跳过的字符数,用于度量匹配的开销;
+     * 由跳过的字符数推算,逐字符推进的路径上没有计数
+     */
+    long visited();
+
+    /**
+     * handler 是否已经要求停止
+     */
+    boolean stopped();
+}
@@ -1,31 +1,53 @@
 package io.github.fzdwx.words.internal.dfa;
 
 
-import io.github.fzdwx.lambada.Tuple;
 import io.github.fzdwx.lambada.fun.State;
+import io.github.fzdwx.words.MatchPolicy;
 import io.github.fzdwx.words.WordsMatcher;
+import io.github.fzdwx.words.WordsSession;
 import lombok.NoArgsConstructor;
-import org.apache.commons.lang3.StringUtils;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * 精确词语匹配器
  *
  * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
- * @apiNote DFA匹配器，精确匹配
+ * @apiNote DFA匹配器，精确匹配<pre>
+ *     1.匹配不加锁,可以与 {@link #put(String)}、{@link #refresh(Collection)} 并发进行
+ *     2.put 与 refresh 互斥执行;put 返回后开始的匹配一定能看到新词,put 期间已经开始的匹配可能看到也可能看不到,但不会误报
+ * </pre>
  * @date 2022/3/10 15:22
  */
 @NoArgsConstructor
 public class AccurateWordsMatcher implements DFAWordsMatcher {
 
-    private Map<Character, DfaNode> nodes;
+    /**
+     * 当前词库快照: trie根节点,失败指针总是已经构建好的。
+     * {@link #refresh(Collection)} 在新trie构建完成后整体替换,{@link #put(String)} 以写时复制的方式修改后重新发布
+     */
+    private volatile DfaNode root = new DfaNode(Character.MIN_VALUE);
+
+    /**
+     * 当前trie的首字符过滤器,在 {@link #root} 之前写入;put 时原地置位,见 {@link Prefilter}
+     */
+    private volatile Prefilter.Bitmap prefilter;
+
+    /**
+     * 敏感词表,在 {@link #root} 之前写入;put 与 applyDelta 前后同一个词的 id 不变,删除的词的 id 保留到下一次 refresh。
+     * refresh 时按新词库重新分配 id,表的大小只取决于当前词库,refresh 前命中的 id 不再有效
+     */
+    private volatile WordTable words = new WordTable();
 
     private AccurateWordsMatcher(final Collection<String> words) {
-        this.nodes = new HashMap<>();
-        words.forEach(this::put);
+        this.refresh(words);
+    }
+
+    AccurateWordsMatcher(final Collection<String> words, final WordTable table) {
+        this.refresh(words, table);
     }
 
     public static AccurateWordsMatcher create(final Collection<String> words) {
@@ -33,64 +55,159 @@ public class AccurateWordsMatcher implements DFAWordsMatcher {
     }
 
     @Override
-    public boolean process(final boolean partMatch, String content, final Handler handle) {
-        if (org.apache.commons.lang3.StringUtils.isEmpty(content)) {
-            return false;
-        }
+    public boolean scan(final MatchPolicy policy, final String content, final HitHandler handle) {
+        return this.scanner(policy, DfaScanner.handler(handle)).scan(content);
+    }
 
-        content = org.apache.commons.lang3.StringUtils.trim(content);
-        final int contentSize = content.length();
-        if (contentSize < 2) { // 单字符不支持
-            return false;
-        }
+    @Override
+    public WordsSession session(final MatchPolicy policy, final StreamHitHandler handle) {
+        return new DfaSession(this.scanner(policy, handle));
+    }
 
-        for (int index = 0; index < contentSize; index++) {
-            final char firstChar = content.charAt(index);
+    @Override
+    public boolean scan(final MatchPolicy policy, final String content, final ForkJoinPool pool, final HitHandler handle) {
+        if (policy != MatchPolicy.ALL) {
+            return this.scan(policy, content, handle);
+        }
+        // 各段使用同一个快照;词表晚于根节点读取,longest 不小于快照中最长的词
+        final DfaNode root = this.root;
+        final Prefilter.Bitmap prefilter = this.prefilter;
+        return new ParallelScanner(this.words.longest(), (first, second) -> new Scanner(root, prefilter, MatchPolicy.ALL, first)).scan(content, pool, handle);
+    }
 
-            DfaNode node = this.nodes.get(firstChar);
-            if (node == null || node.isLeaf()) {
-                continue;
-            }
+    @Override
+    public boolean scan(final MatchPolicy policy, final Path path, final FileHitHandler handle) throws IOException {
+        final MappedFileScanner file = new MappedFileScanner(handle);
+        return file.scan(this.scanner(policy, file), path);
+    }
 
-            // 源文本中匹配敏感词位置
-            int charCount = 1;
+    /**
+     * 添加敏感词
+     *
+     * @apiNote 新路径构建完成后才挂到当前trie上,随后只修正失败链经过新路径的节点的失败指针(见 {@link DfaNode.Relink}),
+     * 最后重新发布根节点: 读到新根节点的匹配一定能看到完整的新词与失败指针
+     */
+    @Override
+    public synchronized State<Void> put(final String word) {
+        final DfaNode root = this.root;
+        final DfaNode.Relink relink = new DfaNode.Relink(root);
+        final State<Void> state = this.put(root, this.words, word, true, relink);
+        if (state.isSuccess()) {
+            relink.apply();
+            this.root = root;
+        }
+        return state;
+    }
 
-            for (int i = index + 1; i < contentSize; i++) {
-                final char wordChar = content.charAt(i);
+    @Override
+    public synchronized State<Void> remove(final String word) {
+        final DfaNode root = this.root;
+        final DfaNode.Relink relink = new DfaNode.Relink(root);
+        final State<Void> state = this.remove(root, word, relink);
+        if (state.isSuccess()) {
+            relink.apply();
+            this.root = root;
+        }
+        return state;
+    }
 
-                node = node.getChildes().get(wordChar);
-                if (node != null) {
-                    charCount++;
-                } else {
-                    break;
-                }
+    /**
+     * 增量更新
+     *
+     * @apiNote 增删都在当前trie上以写时复制进行,全部修改完成后一次修正受影响节点的失败指针,与变化量成正比
+     */
+    @Override
+    public synchronized AccurateWordsMatcher applyDelta(final Collection<String> added, final Collection<String> removed) {
+        final DfaNode root = this.root;
+        final DfaNode.Relink relink = new DfaNode.Relink(root);
+        if (removed != null) {
+            removed.forEach(word -> this.remove(root, word, relink));
+        }
+        if (added != null) {
+            added.forEach(word -> this.put(root, this.words, word, true, relink));
+        }
+        relink.apply();
 
-                if (partMatch && node.isWord()) {
-                    if (handle.apply(Tuple.of(node.source(), StringUtils.substring(content, index, index + charCount)))) {
-                        return true;
-                    }
-                    break;
-                } else if (node.isWord()) {
-                    if (handle.apply(Tuple.of(node.source(), StringUtils.substring(content, index, index + charCount)))) {
-                        return true;
-                    }
-                }
+        this.root = root;
+        return this;
+    }
 
-                if (node.isLeaf()) {
-                    break;
-                }
-            }
+    /**
+     * 刷新
+     *
+     * @apiNote 新词库在调用线程上构建并建好失败指针后才替换当前快照,
+     * 期间并发的匹配继续使用旧快照,不会看到空的或构建到一半的trie
+     */
+    @Override
+    public synchronized AccurateWordsMatcher refresh(final Collection<String> words) {
+        return this.refresh(words, new WordTable(this.words.longest()));
+    }
 
-            if (partMatch) {
-                index += charCount;
-            }
+    /**
+     * @param table 新词库的敏感词表,{@link MixWordsMatcher} 的两部分传入同一张
+     */
+    private AccurateWordsMatcher refresh(final Collection<String> words, final WordTable table) {
+        final DfaNode root = new DfaNode(Character.MIN_VALUE);
+        if (words != null) {
+            words.forEach(word -> this.put(root, table, word, false, null));
         }
+        root.link();
 
-        return false;
+        this.publish(root, table);
+        return this;
+    }
+
+    @Override
+    public String word(final int wordId) {
+        return this.words.word(wordId);
     }
 
     @Override
-    public State<Void> put(String word) {
+    public int wordCount() {
+        return this.words.size();
+    }
+
+    @Override
+    public boolean hasWords() {
+        return !this.root.isLeaf();
+    }
+
+    Scanner scanner(final MatchPolicy policy, final StreamHitHandler handle) {
+        final DfaNode root = this.root;
+        return new Scanner(root, this.prefilter, policy, handle);
+    }
+
+    /**
+     * 发布新构建的trie,词表与过滤器先于根节点写入: 读到新根节点的匹配一定能读到对应的词表与过滤器
+     */
+    private void publish(final DfaNode root, final WordTable table) {
+        this.words = table;
+        this.prefilter = Prefilter.of(root, false);
+        this.root = root;
+    }
+
+    /**
+     * 冻结: 把当前词库编译为只读的双数组trie
+     *
+     * @return {@link FrozenWordsMatcher } 与当前匹配器规则一致的只读匹配器,之后对当前匹配器的修改不会影响它
+     */
+    public synchronized FrozenWordsMatcher freeze() {
+        return new FrozenWordsMatcher(false, this.compile());
+    }
+
+    /**
+     * 与修改互斥: put、remove 与 applyDelta 会原地修正失败指针与输出链,编译时不能读到修正到一半的trie
+     */
+    synchronized DoubleArrayTrie compile() {
+        return DoubleArrayTrie.compile(this.root, true, this.words.toArray());
+    }
+
+    /**
+     * @param table  分配 id 的敏感词表
+     * @param shared root 是否已经发布给读线程,见 {@link DfaNode#insert(String, int, boolean)}
+     * @param relink 不为 null 时记录新路径,之后由调用方 {@link DfaNode.Relink#apply()}
+     */
+    private State<Void> put(final DfaNode root, final WordTable table, String word, final boolean shared, final DfaNode.Relink relink) {
         final State<String> state = WordsMatcher.isValidWord(word);
         if (state.isFailure()) {
             return state.newFail();
@@ -98,31 +215,67 @@ public class AccurateWordsMatcher implements DFAWordsMatcher {
 
         word = state.get();
 
-        final char firstChar = word.charAt(0);
-        DfaNode firstNode = this.nodes.get(firstChar);
-        if (firstNode == null) {
-            firstNode = new DfaNode(firstChar);
-            this.nodes.put(firstChar, firstNode);
+        root.insert(word, DfaNode.DfaNodeType.normal, shared).word(word, table.id(word));
+        if (relink != null) {
+            relink.added(word, DfaNode.DfaNodeType.normal);
+        }
+        if (shared) {
+            this.prefilter.add(word.charAt(0), word.charAt(1));
         }
 
-        firstNode.fillChildren(firstNode, word, DfaNode.DfaNodeType.normal);
+        return state.newSuccess();
+    }
 
+    private State<Void> remove(final DfaNode root, String word, final DfaNode.Relink relink) {
+        final State<String> state = WordsMatcher.isValidWord(word);
+        if (state.isFailure()) {
+            return state.newFail();
+        }
+
+        word = state.get();
+
+        if (!root.remove(word, DfaNode.DfaNodeType.normal, relink)) {
+            return state.newFail(new IllegalArgumentException("word not found " + word));
+        }
         return state.newSuccess();
     }
 
-    @Override
-    public AccurateWordsMatcher refresh(final Collection<String> words) {
-        this.nodes.clear();
+    /**
+     * Aho-Corasick 单遍扫描,每个字符只做一次状态转移(加上失败指针回退),与词库大小和最长词长度无关。
+     */
+    static final class Scanner extends DfaScanner {
 
-        if (words != null) {
-            words.forEach(this::put);
+        private final DfaNode root;
+        private DfaNode state;
+
+        Scanner(final DfaNode root, final Prefilter prefilter, final MatchPolicy policy, final StreamHitHandler handle) {
+            super(policy, prefilter, handle);
+            this.root = root;
+            this.state = root;
         }
 
-        return this;
-    }
+        @Override
+        boolean step(final char c, final long index) {
+            DfaNode state = this.state;
+            DfaNode next;
+            while ((next = state.child(c)) == null && state != this.root) {
+                state = state.fail();
+            }
+            state = next == null ? this.root : next;
+            this.state = state;
 
-    @Override
-    public boolean hasWords() {
-        return this.nodes != null && this.nodes.size() > 0;
+            // 以当前字符结尾的所有敏感词,由长到短;并发删除时输出链可能暂时经过已经清除的单词节点
+            for (DfaNode node = state; node != null; node = node.output()) {
+                if (node.isWord() && this.hit(node.id(), index + 1 - node.depth(), index + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        long matchStart(final long next) {
+            return next - this.state.depth();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,46 @@
+package io.github.fzdwx.words.internal.dfa;
+
+/**
+ * 在首字符位图中查找下一个候选位置
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote <pre>
+ *     1.位图为 int[2048],字符 c 在位图中当且仅当 (heads[c >>> 5] & 1 << c) != 0
+ *     2.这里是逐字符的实现;多版本 jar 在 Java 17 及以上使用 META-INF/versions/17 下的同名类,
+ *       以 jdk.incubator.vector 一次检查多个字符,源码见 src/main/java17
+ *     3.两个实现的结果完全一致,只影响速度
+ *     4.每个扫描器持有一个实例,向量实现的缓冲区放在实例中复用,不是线程安全的
+ * </pre>
+ * @date 2026/10/17 21:40
+ */
+final class CandidateScan {
+
+    CandidateScan() {
+    }
+
+    /**
+     * @return [from, to) 中第一个在位图中的字符的下标,没有时返回 to
+     */
+    int find(final int[] heads, final CharSequence content, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            final char c = content.charAt(i);
+            if ((heads[c >>> 5] & 1 << c) != 0) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * @see #find(int[], CharSequence, int, int)
+     */
+    int find(final int[] heads, final char[] chars, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            final char c = chars[i];
+            if ((heads[c >>> 5] & 1 << c) != 0) {
+                return i;
+            }
+        }
+        return to;
+    }
+}
@@ -0,0 +1,217 @@
+package io.github.fzdwx.words.internal.dfa;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * char -> {@link DFAWordsMatcher.DfaNode} 的子节点索引
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote <pre>
+ *     1.子节点不多于 {@link #SORTED_LIMIT} 个时使用有序 char 数组,二分查找
+ *     2.超过后转为开放寻址(线性探测)的 char 哈希表,负载因子不超过 0.5
+ *     3.key 都是基本类型 char,查找路径上不装箱、不分配对象
+ *     4.本身不是线程安全的,已发布的索引只读,修改通过 {@link #copy()} 进行
+ * </pre>
+ * @date 2026/10/17 10:12
+ */
+final class CharDfaNodeMap {
+
+    /**
+     * 有序数组的最大容量
+     */
+    private static final int SORTED_LIMIT = 8;
+
+    private char[] keys;
+    private DFAWordsMatcher.DfaNode[] values;
+    private int size;
+
+    /**
+     * 是否已转为哈希表
+     */
+    private boolean hashed;
+
+    CharDfaNodeMap() {
+        this.keys = new char[2];
+        this.values = new DFAWordsMatcher.DfaNode[2];
+    }
+
+    private CharDfaNodeMap(final CharDfaNodeMap other) {
+        this.keys = other.keys.clone();
+        this.values = other.values.clone();
+        this.size = other.size;
+        this.hashed = other.hashed;
+    }
+
+    /**
+     * 复制一份索引,修改副本不影响原索引(写时复制)
+     */
+    CharDfaNodeMap copy() {
+        return new CharDfaNodeMap(this);
+    }
+
+    DFAWordsMatcher.DfaNode get(final char c) {
+        if (this.hashed) {
+            final int mask = this.keys.length - 1;
+            int i = hash(c) & mask;
+            DFAWordsMatcher.DfaNode value;
+            while ((value = this.values[i]) != null) {
+                if (this.keys[i] == c) {
+                    return value;
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        final int i = this.indexOf(c);
+        return i >= 0 ? this.values[i] : null;
+    }
+
+    void put(final char c, final DFAWordsMatcher.DfaNode node) {
+        if (this.hashed) {
+            if ((this.size + 1) << 1 > this.keys.length) {
+                this.rehash(this.keys.length << 1);
+            }
+            if (insert(this.keys, this.values, c, node)) {
+                this.size++;
+            }
+            return;
+        }
+
+        int i = this.indexOf(c);
+        if (i >= 0) {
+            this.values[i] = node;
+            return;
+        }
+
+        if (this.size == SORTED_LIMIT) {
+            this.rehash(SORTED_LIMIT << 2);
+            this.put(c, node);
+            return;
+        }
+
+        if (this.size == this.keys.length) {
+            final int capacity = Math.min(this.size << 1, SORTED_LIMIT);
+            this.keys = Arrays.copyOf(this.keys, capacity);
+            this.values = Arrays.copyOf(this.values, capacity);
+        }
+
+        i = -(i + 1);
+        System.arraycopy(this.keys, i, this.keys, i + 1, this.size - i);
+        System.arraycopy(this.values, i, this.values, i + 1, this.size - i);
+        this.keys[i] = c;
+        this.values[i] = node;
+        this.size++;
+    }
+
+    void remove(final char c) {
+        if (this.hashed) {
+            final int mask = this.keys.length - 1;
+            int i = hash(c) & mask;
+            while (this.values[i] != null && this.keys[i] != c) {
+                i = (i + 1) & mask;
+            }
+            if (this.values[i] == null) {
+                return;
+            }
+
+            // 删除后把同一探测序列上后面的元素往前挪,保证查找不会提前遇到空位
+            this.values[i] = null;
+            this.size--;
+            for (int j = (i + 1) & mask; this.values[j] != null; j = (j + 1) & mask) {
+                final int k = hash(this.keys[j]) & mask;
+                if (i <= j ? (i < k && k <= j) : (i < k || k <= j)) {
+                    continue;
+                }
+                this.keys[i] = this.keys[j];
+                this.values[i] = this.values[j];
+                this.values[j] = null;
+                i = j;
+            }
+            return;
+        }
+
+        final int i = this.indexOf(c);
+        if (i < 0) {
+            return;
+        }
+        System.arraycopy(this.keys, i + 1, this.keys, i, this.size - i - 1);
+        System.arraycopy(this.values, i + 1, this.values, i, this.size - i - 1);
+        this.size--;
+        this.values[this.size] = null;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    void forEach(final Consumer<DFAWordsMatcher.DfaNode> action) {
+        final int length = this.hashed ? this.values.length : this.size;
+        for (int i = 0; i < length; i++) {
+            final DFAWordsMatcher.DfaNode value = this.values[i];
+            if (value != null) {
+                action.accept(value);
+            }
+        }
+    }
+
+    /**
+     * 有序数组中二分查找
+     *
+     * @return 命中时的下标,否则为 -(插入点 + 1)
+     */
+    private int indexOf(final char c) {
+        int low = 0;
+        int high = this.size - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final char key = this.keys[mid];
+            if (key < c) {
+                low = mid + 1;
+            } else if (key > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void rehash(final int capacity) {
+        final char[] newKeys = new char[capacity];
+        final DFAWordsMatcher.DfaNode[] newValues = new DFAWordsMatcher.DfaNode[capacity];
+        final int length = this.hashed ? this.values.length : this.size;
+        for (int i = 0; i < length; i++) {
+            if (this.values[i] != null) {
+                insert(newKeys, newValues, this.keys[i], this.values[i]);
+            }
+        }
+        this.keys = newKeys;
+        this.values = newValues;
+        this.hashed = true;
+    }
+
+    /**
+     * @return 是否新增了一个key
+     */
+    private static boolean insert(final char[] keys, final DFAWordsMatcher.DfaNode[] values, final char c, final DFAWordsMatcher.DfaNode node) {
+        final int mask = keys.length - 1;
+        int i = hash(c) & mask;
+        while (values[i] != null) {
+            if (keys[i] == c) {
+                values[i] = node;
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = c;
+        values[i] = node;
+        return true;
+    }
+
+    private static int hash(final char c) {
+        final int h = c * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
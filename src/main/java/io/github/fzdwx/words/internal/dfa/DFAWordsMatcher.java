@@ -2,9 +2,14 @@ package io.github.fzdwx.words.internal.dfa;
 
 import io.github.fzdwx.words.WordsMatcher;
 
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
@@ -41,22 +46,52 @@ public interface DFAWordsMatcher extends WordsMatcher {
     class DfaNode {
 
         private final int type;
-        private final Map<Character, DfaNode> childes = new HashMap<>();
+        /**
+         * 子节点索引,叶子节点为 null。
+         * 已发布给读线程的trie只以写时复制的方式修改,读线程总能看到一个完整的索引
+         */
+        private volatile CharDfaNodeMap childes;
         private final char _char;
         // private DfaNode parent;
-        private boolean word;
+        /**
+         * 在 source 与 id 之后写入,读到 true 的线程一定能读到对应的 source 与 id
+         */
+        private volatile boolean word;
         private String source;
+        /**
+         * 敏感词 id,见 {@link WordTable}
+         */
+        private int id = -1;
+        /**
+         * 节点深度,即从根节点到当前节点的字符数
+         */
+        private int depth;
+        /**
+         * 失败指针(Aho-Corasick),指向当前路径在trie中最长的真后缀节点。
+         * 已发布的trie上只写入计算好的值,读线程读到的总是某个真后缀节点
+         */
+        private volatile DfaNode fail;
+        /**
+         * 沿失败指针能到达的最近的单词节点
+         */
+        private volatile DfaNode output;
+        /**
+         * 失败树: 失败指针指向当前节点的节点组成的双向链表,只由写线程在 {@link #link()} 与 {@link Relink} 中维护
+         */
+        private DfaNode failHead;
+        private DfaNode failPrev;
+        private DfaNode failNext;
+        /**
+         * 失败指针是否已经构建并挂到失败树上,新插入的节点在 {@link Relink#apply()} 前为 false
+         */
+        private boolean linked;
 
         public DfaNode(final char _char) {
             this(_char, DfaNodeType.normal);
         }
 
         public DfaNode(final char _char, final int type) {
-            if (type == DfaNodeType.en) {
-                this._char = WordsMatcher.toLowerCase(_char);
-            } else {
-                this._char = _char;
-            }
+            this._char = key(_char, type);
             this.type = type;
         }
 
@@ -72,8 +107,24 @@ public interface DFAWordsMatcher extends WordsMatcher {
             return this.word;
         }
 
+        public int id() {
+            return this.id;
+        }
+
+        public int depth() {
+            return this.depth;
+        }
+
+        public DfaNode fail() {
+            return this.fail;
+        }
+
+        public DfaNode output() {
+            return this.output;
+        }
+
         public boolean isLeaf() {
-            return this.childes.isEmpty();
+            return this.childes == null || this.childes.size() == 0;
         }
 
         public char getChar() {
@@ -81,61 +132,427 @@ public interface DFAWordsMatcher extends WordsMatcher {
         }
 
         public void addChild(final DfaNode child) {
+            if (this.childes == null) {
+                this.childes = new CharDfaNodeMap();
+            }
+            child.depth = this.depth + 1;
             this.childes.put(child.getChar(), child);
             //child.setParent(this);
         }
 
-        public Map<Character, DfaNode> getChildes() {
-            return this.childes;
+        /**
+         * 以写时复制的方式添加子节点,用于已经发布给读线程的trie
+         */
+        public void publishChild(final DfaNode child) {
+            final CharDfaNodeMap childes = this.childes == null ? new CharDfaNodeMap() : this.childes.copy();
+            child.depth = this.depth + 1;
+            childes.put(child.getChar(), child);
+            this.childes = childes;
         }
 
-        public void fillChildren(DfaNode root, final String word, final int type) {
-            final int wordLength = word.length();
+        /**
+         * 以写时复制的方式删除子节点
+         */
+        private void unpublishChild(final char c) {
+            final CharDfaNodeMap childes = this.childes.copy();
+            childes.remove(c);
+            this.childes = childes.size() == 0 ? null : childes;
+        }
 
-            for (int i = 1; i < wordLength; i++) {
-                final char nextChar = word.charAt(i);
-                DfaNode nextNode = null;
+        /**
+         * 查找子节点
+         *
+         * @param c 字符
+         * @return {@link DfaNode } 不存在时返回 null
+         */
+        public DfaNode child(final char c) {
+            final CharDfaNodeMap childes = this.childes;
+            return childes == null ? null : childes.get(c);
+        }
 
-                if (!root.isLeaf()) {
-                    nextNode = root.getChildes().get(nextChar);
-                }
+        public int childCount() {
+            return this.childes == null ? 0 : this.childes.size();
+        }
 
+        public void forEachChild(final Consumer<DfaNode> action) {
+            if (this.childes != null) {
+                this.childes.forEach(action);
+            }
+        }
+
+        public void clearChildren() {
+            this.childes = null;
+        }
+
+        /**
+         * 以当前节点为根插入 word 的路径
+         *
+         * @param shared 当前trie是否已经发布给读线程。是则新路径先在私有节点上构建完成,
+         *               再以一次写时复制挂到已有的节点上,读线程要么看不到新路径,要么看到完整的新路径;
+         *               新节点的失败指针先指向当前节点,由调用方在之后重新 {@link #link()}
+         * @return {@link DfaNode } word 最后一个字符对应的节点
+         */
+        public DfaNode insert(final String word, final int type, final boolean shared) {
+            final int wordLength = word.length();
+
+            DfaNode node = this;
+            int i = 0;
+            for (; i < wordLength; i++) {
+                final char nextChar = word.charAt(i);
+                final DfaNode nextNode = node.child(key(nextChar, type));
                 if (nextNode == null) {
-                    nextNode = new DfaNode(nextChar, type);
+                    break;
                 }
+                node = nextNode;
+            }
+            if (i == wordLength) {
+                return node;
+            }
+
+            final DfaNode branch = node;
+            final DfaNode head = new DfaNode(word.charAt(i), type);
+            head.depth = branch.depth + 1;
+            head.fail = this;
+            node = head;
+            for (i++; i < wordLength; i++) {
+                final DfaNode nextNode = new DfaNode(word.charAt(i), type);
+                nextNode.fail = this;
+                node.addChild(nextNode);
+                node = nextNode;
+            }
 
-                root.addChild(nextNode);
-                root = nextNode;
+            if (shared) {
+                branch.publishChild(head);
+            } else {
+                branch.addChild(head);
+            }
+            return node;
+        }
 
-                if (i == wordLength - 1) {
-                    root.word(word);
+        /**
+         * 以当前节点为根删除 word,并剪掉不再通向任何单词的节点
+         *
+         * @return boolean word 是否存在
+         * @apiNote 剪枝以写时复制进行,读线程要么看到删除前的trie,要么看到删除后的trie;
+         * 单词标记先于剪枝清除,之后开始的匹配不会再命中 word
+         */
+        public boolean remove(final String word, final int type) {
+            return this.remove(word, type, null);
+        }
+
+        /**
+         * @param relink 不为 null 时记录清除的单词节点与剪掉的分支,之后由 {@link Relink#apply()} 修正 AC 失败指针
+         * @see #remove(String, int)
+         */
+        public boolean remove(final String word, final int type, final Relink relink) {
+            final int wordLength = word.length();
+
+            DfaNode node = this;
+            // 路径上最深的必须保留的节点,以及它通向 word 的子节点字符
+            DfaNode keep = this;
+            char keepChar = Character.MIN_VALUE;
+            for (int i = 0; i < wordLength; i++) {
+                final char nextChar = key(word.charAt(i), type);
+                final DfaNode nextNode = node.child(nextChar);
+                if (nextNode == null) {
+                    return false;
+                }
+                if (node == this || node.word || node.childCount() > 1) {
+                    keep = node;
+                    keepChar = nextChar;
                 }
+                node = nextNode;
             }
+            if (!node.word) {
+                return false;
+            }
+
+            node.word = false;
+            DfaNode pruned = null;
+            if (node.isLeaf()) {
+                pruned = keep.child(keepChar);
+                keep.unpublishChild(keepChar);
+            }
+            if (relink != null) {
+                relink.removed(node, pruned);
+            }
+            return true;
         }
 
         public void print() {
             System.out.print(this.getChar());
-            if (this.getChildes() != null) {
-                final Set<Character> keys = this.getChildes().keySet();
-                for (final Character _char : keys) {
-                    this.print(this.getChildes().get(_char));
-                }
-            }
+            this.forEachChild(this::print);
         }
 
-        public void word(final String word) {
+        public void word(final String word, final int id) {
             this.source = word;
+            this.id = id;
             this.word = true;
         }
 
-        private void print(final DfaNode node) {
-            System.out.print(node.getChar());
-            if (node.getChildes() != null) {
-                final Set<Character> keys = node.getChildes().keySet();
-                for (final Character _char : keys) {
-                    this.print(node.getChildes().get(_char));
+        /**
+         * 以当前节点为根,按层序为整棵trie构建失败指针与输出指针
+         *
+         * @apiNote 与词库大小成正比,只用于还没有发布的trie;已发布的trie的增量修改见 {@link Relink}
+         */
+        public void link() {
+            this.failHead = null;
+            this.linked = true;
+            final Deque<DfaNode> queue = new ArrayDeque<>();
+            this.forEachChild(child -> {
+                child.unlink();
+                child.failTo(this);
+                child.output = null;
+                queue.add(child);
+            });
+
+            while (!queue.isEmpty()) {
+                final DfaNode node = queue.poll();
+                node.forEachChild(child -> {
+                    child.unlink();
+                    child.failTo(this.failOf(node, child));
+                    child.output = child.fail.isWord() ? child.fail : child.fail.output;
+                    queue.add(child);
+                });
+            }
+        }
+
+        /**
+         * 以当前节点为根,parent 的失败指针已经确定时 child 的失败指针
+         */
+        private DfaNode failOf(final DfaNode parent, final DfaNode child) {
+            if (parent == this) {
+                return this;
+            }
+
+            DfaNode fail = parent.fail;
+            DfaNode next;
+            while ((next = fail.child(child.getChar())) == null && fail != this) {
+                fail = fail.fail;
+            }
+            return next == null ? this : next;
+        }
+
+        /**
+         * 挂到 fail 的失败树下,并发布失败指针
+         */
+        private void failTo(final DfaNode fail) {
+            if (this.linked) {
+                this.detach();
+            }
+            final DfaNode head = fail.failHead;
+            this.failNext = head;
+            if (head != null) {
+                head.failPrev = this;
+            }
+            fail.failHead = this;
+            this.fail = fail;
+            this.linked = true;
+        }
+
+        /**
+         * 从当前失败指针的失败树中摘下,失败指针本身保持不变,正在经过的读线程仍然可以沿它回退
+         */
+        private void detach() {
+            if (this.failPrev != null) {
+                this.failPrev.failNext = this.failNext;
+            } else {
+                this.fail.failHead = this.failNext;
+            }
+            if (this.failNext != null) {
+                this.failNext.failPrev = this.failPrev;
+            }
+            this.failPrev = null;
+            this.failNext = null;
+        }
+
+        private void unlink() {
+            this.failHead = null;
+            this.failPrev = null;
+            this.failNext = null;
+            this.linked = false;
+        }
+
+        /**
+         * 节点类型对应的子节点 key,英文统一小写,中文统一为简体
+         */
+        private static char key(final char c, final int type) {
+            if (type == DfaNodeType.en) {
+                return WordsMatcher.toLowerCase(c);
+            }
+            return type == DfaNodeType.zh ? Simplified.fold(c) : c;
+        }
+
+        /**
+         * 已发布trie的一次增量修改: 先在trie上完成插入与删除,再由 {@link #apply()} 只修正受影响节点的失败指针与输出指针
+         *
+         * @apiNote <pre>
+         *     1.被剪掉的节点: 失败指针指向它们的节点改为沿原失败链找到的第一个仍在trie上的节点
+         *     2.新节点按深度由浅到深计算失败指针;已有节点中以新节点为更长真后缀的,只可能是新节点父节点失败树中
+         *       某个节点经同一字符到达的子节点,只在这棵失败树中查找,遇到已有该子节点的节点即停止向下
+         *     3.失败指针变化的节点与单词标记变化的节点,沿失败树向下修正输出指针,遇到不变的节点即停止
+         *     4.工作量与失败链经过修改路径的节点数成正比,与词库大小无关;每个指针都以计算好的值一次写入,
+         *       读线程读到的总是当前路径的某个真后缀,可能暂时漏掉新词,但不会命中已删除的词(见 {@link #isWord()})
+         * </pre>
+         */
+        static final class Relink {
+
+            private final DfaNode root;
+            /**
+             * 新节点 -> 父节点
+             */
+            private final Map<DfaNode, DfaNode> created = new IdentityHashMap<>();
+            /**
+             * 单词标记变化的节点
+             */
+            private final List<DfaNode> words = new ArrayList<>();
+            /**
+             * 剪掉的分支
+             */
+            private final List<DfaNode> pruned = new ArrayList<>();
+
+            Relink(final DfaNode root) {
+                this.root = root;
+            }
+
+            /**
+             * 记录 word 路径上的新节点,word 已经插入并标记为单词
+             */
+            void added(final String word, final int type) {
+                DfaNode node = this.root;
+                for (int i = 0; i < word.length(); i++) {
+                    final DfaNode parent = node;
+                    node = parent.child(key(word.charAt(i), type));
+                    if (node == null) {
+                        return;
+                    }
+                    if (!node.linked) {
+                        this.created.putIfAbsent(node, parent);
+                    }
+                }
+                this.words.add(node);
+            }
+
+            private void removed(final DfaNode node, final DfaNode pruned) {
+                this.words.add(node);
+                if (pruned != null) {
+                    this.pruned.add(pruned);
                 }
             }
+
+            void apply() {
+                final List<DfaNode> dirty = new ArrayList<>(this.words);
+                this.prune(dirty);
+                this.create(dirty);
+
+                dirty.sort(Comparator.comparingInt(DfaNode::depth));
+                for (final DfaNode node : dirty) {
+                    if (node.linked) {
+                        node.output = node.fail.isWord() ? node.fail : node.fail.output;
+                        outputs(node);
+                    }
+                }
+            }
+
+            private void prune(final List<DfaNode> dirty) {
+                final List<DfaNode> removed = new ArrayList<>();
+                final Deque<DfaNode> stack = new ArrayDeque<>(this.pruned);
+                while (!stack.isEmpty()) {
+                    final DfaNode node = stack.pop();
+                    removed.add(node);
+                    node.forEachChild(stack::push);
+                }
+                for (final DfaNode node : removed) {
+                    if (node.linked) {
+                        node.detach();
+                        node.linked = false;
+                    }
+                }
+
+                for (final DfaNode node : removed) {
+                    for (DfaNode x = node.failHead, next; x != null; x = next) {
+                        next = x.failNext;
+                        if (x.linked) {
+                            DfaNode fail = node;
+                            while (!fail.linked) {
+                                fail = fail.fail;
+                            }
+                            x.failTo(fail);
+                            dirty.add(x);
+                        }
+                    }
+                }
+            }
+
+            private void create(final List<DfaNode> dirty) {
+                final List<DfaNode> nodes = new ArrayList<>(this.created.keySet());
+                nodes.sort(Comparator.comparingInt(DfaNode::depth));
+
+                final List<DfaNode> longer = new ArrayList<>();
+                final Deque<DfaNode> stack = new ArrayDeque<>();
+                for (final DfaNode node : nodes) {
+                    final DfaNode parent = this.created.get(node);
+                    final char c = node.getChar();
+                    node.failTo(this.root.failOf(parent, node));
+                    dirty.add(node);
+
+                    longer.clear();
+                    if (parent == this.root) {
+                        // 原来以 c 结尾且没有任何真后缀在trie上的节点
+                        for (DfaNode x = this.root.failHead; x != null; x = x.failNext) {
+                            if (x != node && x.getChar() == c) {
+                                longer.add(x);
+                            }
+                        }
+                    } else {
+                        pushFailChildren(stack, parent);
+                        while (!stack.isEmpty()) {
+                            final DfaNode z = stack.pop();
+                            final DfaNode x = z.child(c);
+                            if (x == null) {
+                                pushFailChildren(stack, z);
+                            } else if (x.linked && x.fail.depth < node.depth) {
+                                longer.add(x);
+                            }
+                        }
+                    }
+                    for (final DfaNode x : longer) {
+                        x.failTo(node);
+                        dirty.add(x);
+                    }
+                }
+            }
+
+            /**
+             * 沿失败树向下修正输出指针
+             */
+            private static void outputs(final DfaNode from) {
+                final Deque<DfaNode> stack = new ArrayDeque<>();
+                stack.push(from);
+                while (!stack.isEmpty()) {
+                    final DfaNode node = stack.pop();
+                    final DfaNode output = node.isWord() ? node : node.output;
+                    for (DfaNode x = node.failHead; x != null; x = x.failNext) {
+                        if (x.output != output) {
+                            x.output = output;
+                            if (!x.isWord()) {
+                                stack.push(x);
+                            }
+                        }
+                    }
+                }
+            }
+
+            private static void pushFailChildren(final Deque<DfaNode> stack, final DfaNode node) {
+                for (DfaNode x = node.failHead; x != null; x = x.failNext) {
+                    stack.push(x);
+                }
+            }
+        }
+
+        private void print(final DfaNode node) {
+            System.out.print(node.getChar());
+            node.forEachChild(this::print);
         }
 
         interface DfaNodeType {
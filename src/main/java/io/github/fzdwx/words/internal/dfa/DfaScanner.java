@@ -0,0 +1,265 @@
+package io.github.fzdwx.words.internal.dfa;
+
+import io.github.fzdwx.words.MatchPolicy;
+import io.github.fzdwx.words.WordsMatcher;
+
+import java.util.Arrays;
+
+/**
+ * 一次匹配过程的扫描状态
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote <pre>
+ *     1.内容逐字符交给 {@link #next(char, long)},扫描器自己维护trie上的游标,不回头读取内容
+ *     2.多个扫描器可以被同一个循环驱动,见 {@link MixWordsMatcher}
+ *     3.状态只在扫描器内部,内容可以分多次交给同一个扫描器,见 {@link DfaSession}
+ *     4.子类只负责找出所有命中({@link #step(char, long)}),{@link MatchPolicy} 的取舍在这里统一进行:
+ *       不重叠的策略把命中先放在 pending 中,{@link #matchStart(long)} 说明不会再有更优的命中时才回调。
+ *       进行中的匹配跨越的字符数有上限(模糊匹配见 {@link FuzzWordsMatcher#MAX_SKIP}),pending 中只有这个范围内的命中
+ *     5.没有进行中的匹配时,由 {@link Prefilter} 跳过不可能开始匹配的字符,见 {@link #skip(CharSequence, int, int, long)}
+ * </pre>
+ * @date 2026/10/17 13:20
+ */
+abstract class DfaScanner {
+
+    final MatchPolicy policy;
+    private final WordsMatcher.StreamHitHandler handle;
+
+    /**
+     * 首字符过滤器,为 null 时逐个字符推进
+     */
+    private final Prefilter prefilter;
+    private final CandidateScan candidates = new CandidateScan();
+
+    /**
+     * 不重叠策略下等待确定的命中,按到达顺序存放
+     */
+    private int[] pendingIds;
+    private long[] pendingStarts;
+    private long[] pendingEnds;
+    private int pending;
+
+    /**
+     * 上一个回调的命中的结束位置,之后的命中不能在它之前开始
+     */
+    private long last = Long.MIN_VALUE;
+
+    /**
+     * 被 {@link Prefilter} 跳过的字符数;只在跳过时累加,逐字符推进的路径上没有计数
+     */
+    private long skipped;
+
+    DfaScanner(final MatchPolicy policy, final Prefilter prefilter, final WordsMatcher.StreamHitHandler handle) {
+        this.policy = policy;
+        this.prefilter = prefilter;
+        this.handle = handle;
+    }
+
+    /**
+     * 推进一个字符,所有以该字符结尾的命中都交给 {@link #hit(int, long, long)}
+     *
+     * @param c     字符
+     * @param index 字符在内容中的位置,流式匹配时为从会话开始的绝对位置
+     * @return boolean handler 要求停止时返回 true
+     */
+    abstract boolean step(char c, long index);
+
+    /**
+     * 进行中的匹配的最早起始位置,之后的命中不会早于该位置开始
+     *
+     * @param next 下一个字符的位置
+     * @return long 没有进行中的匹配时返回 next
+     */
+    abstract long matchStart(long next);
+
+    /**
+     * 推进一个字符,并回调已经确定的命中
+     *
+     * @param c     字符
+     * @param index 字符在内容中的位置,流式匹配时为从会话开始的绝对位置
+     * @return boolean handler 要求停止时返回 true
+     */
+    final boolean next(final char c, final long index) {
+        if (this.step(c, index)) {
+            return true;
+        }
+        return this.pending != 0 && this.flush(this.matchStart(index + 1));
+    }
+
+    /**
+     * 内容结束,回调所有等待确定的命中
+     *
+     * @return boolean handler 要求停止时返回 true
+     */
+    final boolean finish() {
+        return this.pending != 0 && this.flush(Long.MAX_VALUE);
+    }
+
+    /**
+     * 仍可能出现在之后回调中的最早位置,之前的内容不会再被任何命中引用
+     *
+     * @param next 下一个字符的位置
+     * @return long 没有进行中的匹配与等待确定的命中时返回 next
+     */
+    final long liveStart(final long next) {
+        long live = this.matchStart(next);
+        for (int i = 0; i < this.pending; i++) {
+            live = Math.min(live, this.pendingStarts[i]);
+        }
+        return live;
+    }
+
+    /**
+     * 没有进行中的匹配时跳过不可能开始匹配的字符;跳过的字符不会产生命中,也不改变扫描器的状态
+     *
+     * @param from   下一个字符的下标
+     * @param offset 下标到位置的偏移,即 content[i] 的位置为 offset + i
+     * @return int 下一个需要推进的字符的下标,没有时返回 to
+     */
+    final int skip(final CharSequence content, final int from, final int to, final long offset) {
+        if (this.prefilter == null || from >= to || this.matchStart(offset + from) != offset + from) {
+            return from;
+        }
+        final int next = this.prefilter.skip(this.candidates, content, from, to);
+        this.skipped += next - from;
+        return next;
+    }
+
+    /**
+     * @see #skip(CharSequence, int, int, long)
+     */
+    final int skip(final char[] chars, final int from, final int to, final long offset) {
+        if (this.prefilter == null || from >= to || this.matchStart(offset + from) != offset + from) {
+            return from;
+        }
+        final int next = this.prefilter.skip(this.candidates, chars, from, to);
+        this.skipped += next - from;
+        return next;
+    }
+
+    Prefilter prefilter() {
+        return this.prefilter;
+    }
+
+    /**
+     * 推进过trie的字符数,由扫描的字符数减去跳过的字符数得到
+     *
+     * @param chars 已经扫描的字符数
+     */
+    final long visited(final long chars) {
+        return chars - this.skipped;
+    }
+
+    /**
+     * 扫描内容,首尾空白(与 {@link String#trim()} 一致)不参与匹配,命中位置以原内容为准
+     *
+     * @return boolean handler 要求停止时返回 true
+     */
+    final boolean scan(final String content) {
+        if (content == null) {
+            return false;
+        }
+
+        int from = 0;
+        int to = content.length();
+        while (from < to && content.charAt(from) <= ' ') {
+            from++;
+        }
+        while (to > from && content.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        if (to - from < 2) { // 单字符不支持
+            return false;
+        }
+
+        for (int index = this.skip(content, from, to, 0); index < to; index = this.skip(content, index + 1, to, 0)) {
+            if (this.next(content.charAt(index), index)) {
+                return true;
+            }
+        }
+        return this.finish();
+    }
+
+    /**
+     * 命中
+     *
+     * @param wordId 敏感词 id
+     * @param start  命中内容起始位置(包含)
+     * @param end    命中内容结束位置(不包含)
+     * @return boolean handler 要求停止时返回 true
+     */
+    final boolean hit(final int wordId, final long start, final long end) {
+        if (this.policy == MatchPolicy.ALL) {
+            return this.handle.apply(wordId, start, end);
+        }
+
+        if (start >= this.last) { // 与已经回调的命中重叠的直接丢弃
+            if (this.pendingIds == null) {
+                this.pendingIds = new int[4];
+                this.pendingStarts = new long[4];
+                this.pendingEnds = new long[4];
+            } else if (this.pending == this.pendingIds.length) {
+                this.pendingIds = Arrays.copyOf(this.pendingIds, this.pending << 1);
+                this.pendingStarts = Arrays.copyOf(this.pendingStarts, this.pending << 1);
+                this.pendingEnds = Arrays.copyOf(this.pendingEnds, this.pending << 1);
+            }
+            this.pendingIds[this.pending] = wordId;
+            this.pendingStarts[this.pending] = start;
+            this.pendingEnds[this.pending] = end;
+            this.pending++;
+        }
+        return false;
+    }
+
+    /**
+     * 依次回调已经确定的命中
+     *
+     * @param live 进行中的匹配的最早起始位置,内容结束时为 {@link Long#MAX_VALUE}
+     * @return boolean handler 要求停止时返回 true
+     */
+    private boolean flush(final long live) {
+        final boolean longest = this.policy == MatchPolicy.LEFTMOST_LONGEST;
+        while (this.pending != 0) {
+            int best = 0;
+            for (int i = 1; i < this.pending; i++) {
+                final long start = this.pendingStarts[i];
+                final long bestStart = this.pendingStarts[best];
+                if (start < bestStart || start == bestStart
+                        && (longest ? this.pendingEnds[i] > this.pendingEnds[best] : this.pendingEnds[i] < this.pendingEnds[best])) {
+                    best = i;
+                }
+            }
+
+            // 进行中的匹配可能得到更靠左的命中;最长策略下还可能得到同一起始位置更长的命中
+            final long start = this.pendingStarts[best];
+            if (longest ? live <= start : live < start) {
+                return false;
+            }
+
+            if (this.handle.apply(this.pendingIds[best], start, this.pendingEnds[best])) {
+                this.pending = 0;
+                return true;
+            }
+
+            this.last = this.pendingEnds[best];
+            int kept = 0;
+            for (int i = 0; i < this.pending; i++) {
+                if (this.pendingStarts[i] >= this.last) {
+                    this.pendingIds[kept] = this.pendingIds[i];
+                    this.pendingStarts[kept] = this.pendingStarts[i];
+                    this.pendingEnds[kept] = this.pendingEnds[i];
+                    kept++;
+                }
+            }
+            this.pending = kept;
+        }
+        return false;
+    }
+
+    /**
+     * 扫描 String 时位置不会超过 int 范围
+     */
+    static WordsMatcher.StreamHitHandler handler(final WordsMatcher.HitHandler handle) {
+        return (wordId, start, end) -> handle.apply(wordId, (int) start, (int) end);
+    }
+}
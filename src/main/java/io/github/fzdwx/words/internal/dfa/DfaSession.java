@@ -0,0 +1,133 @@
+package io.github.fzdwx.words.internal.dfa;
+
+import io.github.fzdwx.words.WordsSession;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * 基于 {@link DfaScanner} 的流式匹配会话,扫描器本身就保存了跨块所需的全部状态
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @date 2026/10/17 16:10
+ */
+final class DfaSession implements WordsSession {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final DfaScanner scanner;
+    private long position;
+    private boolean stopped;
+    /**
+     * 读取 {@link Reader} 时复用的缓冲区
+     */
+    private char[] buffer;
+
+    DfaSession(final DfaScanner scanner) {
+        this.scanner = scanner;
+    }
+
+    @Override
+    public boolean feed(final CharSequence chunk) {
+        return chunk == null ? this.stopped : this.feed(chunk, 0, chunk.length());
+    }
+
+    @Override
+    public boolean feed(final CharSequence chunk, final int start, final int end) {
+        if (this.stopped) {
+            return true;
+        }
+
+        final DfaScanner scanner = this.scanner;
+        final long offset = this.position - start;
+        for (int i = scanner.skip(chunk, start, end, offset); i < end; i = scanner.skip(chunk, i + 1, end, offset)) {
+            if (scanner.next(chunk.charAt(i), offset + i)) {
+                this.position = offset + i + 1;
+                this.stopped = true;
+                return true;
+            }
+        }
+        this.position = offset + end;
+        return false;
+    }
+
+    @Override
+    public boolean feed(final char[] chars, final int offset, final int length) {
+        if (this.stopped) {
+            return true;
+        }
+
+        final DfaScanner scanner = this.scanner;
+        final int end = offset + length;
+        final long position = this.position - offset;
+        for (int i = scanner.skip(chars, offset, end, position); i < end; i = scanner.skip(chars, i + 1, end, position)) {
+            if (scanner.next(chars[i], position + i)) {
+                this.position = position + i + 1;
+                this.stopped = true;
+                return true;
+            }
+        }
+        this.position = position + end;
+        return false;
+    }
+
+    @Override
+    public boolean feed(final CharBuffer buffer) {
+        if (buffer.hasArray()) {
+            final int position = buffer.position();
+            final int length = buffer.remaining();
+            buffer.position(buffer.limit());
+            return this.feed(buffer.array(), buffer.arrayOffset() + position, length);
+        }
+
+        while (!this.stopped && buffer.hasRemaining()) {
+            this.next(buffer.get());
+        }
+        buffer.position(buffer.limit());
+        return this.stopped;
+    }
+
+    @Override
+    public boolean feed(final Reader reader) throws IOException {
+        if (this.buffer == null) {
+            this.buffer = new char[BUFFER_SIZE];
+        }
+
+        int length;
+        while (!this.stopped && (length = reader.read(this.buffer)) != -1) {
+            this.feed(this.buffer, 0, length);
+        }
+        return this.stopped;
+    }
+
+    @Override
+    public boolean finish() {
+        if (!this.stopped && this.scanner.finish()) {
+            this.stopped = true;
+        }
+        return this.stopped;
+    }
+
+    @Override
+    public long position() {
+        return this.position;
+    }
+
+    @Override
+    public long visited() {
+        return this.scanner.visited(this.position);
+    }
+
+    @Override
+    public boolean stopped() {
+        return this.stopped;
+    }
+
+    private boolean next(final char c) {
+        if (this.scanner.next(c, this.position++)) {
+            this.stopped = true;
+        }
+        return this.stopped;
+    }
+}
@@ -0,0 +1,392 @@
+package io.github.fzdwx.words.internal.dfa;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 双数组trie,{@link DFAWordsMatcher.DfaNode} 图编译后的只读形式
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote <pre>
+ *     1.状态 s 经字符 c 转移到 t = base[s] + c,当且仅当 check[t] == s 时转移存在
+ *     2.根状态为 0,base[s] == 0 表示叶子状态
+ *     3.word/type/depth/fail/output 都按状态下标存放,匹配时只访问连续的数组
+ *     4.{@link Heap} 把数组放在堆上;{@link OffHeapDoubleArrayTrie} 直接读取堆外的 ByteBuffer,见 {@link DoubleArrayTrieFile}
+ * </pre>
+ * @date 2026/10/17 11:05
+ */
+abstract class DoubleArrayTrie {
+
+    static final int ROOT = 0;
+    static final int NONE = -1;
+
+    /**
+     * 第一次匹配时才构建,重复构建的结果一样,不需要加锁
+     */
+    private volatile Prefilter prefilter;
+
+    /**
+     * 最深的状态的深度,第一次并行扫描时才计算,-1 表示还没有计算;与 prefilter 一样不需要加锁
+     */
+    private volatile int longest = -1;
+
+    /**
+     * 状态转移
+     *
+     * @return 目标状态,不存在时返回 {@link #NONE}
+     */
+    abstract int child(int state, char c);
+
+    abstract int base(int state);
+
+    abstract int check(int state);
+
+    /**
+     * 状态对应的敏感词 id,非单词为 {@link #NONE}
+     */
+    abstract int word(int state);
+
+    /**
+     * {@link DFAWordsMatcher.DfaNode.DfaNodeType}
+     */
+    abstract int type(int state);
+
+    abstract int depth(int state);
+
+    /**
+     * Aho-Corasick 失败指针,只有以自动机方式编译时才有
+     */
+    abstract int fail(int state);
+
+    abstract int output(int state);
+
+    /**
+     * 是否以自动机方式编译
+     */
+    abstract boolean automaton();
+
+    /**
+     * 状态数
+     */
+    abstract int size();
+
+    /**
+     * 敏感词表的大小
+     */
+    abstract int wordCount();
+
+    /**
+     * 根据 id 取得敏感词
+     */
+    abstract String source(int wordId);
+
+    /**
+     * @param fuzz 是否为模糊匹配的trie,同一个trie总是以同一种方式匹配
+     */
+    Prefilter prefilter(final boolean fuzz) {
+        Prefilter prefilter = this.prefilter;
+        if (prefilter == null) {
+            this.prefilter = prefilter = Prefilter.of(this, fuzz);
+        }
+        return prefilter;
+    }
+
+    /**
+     * @return int 最长的词在trie中的字符数,即最深的状态的深度
+     */
+    int longest() {
+        int longest = this.longest;
+        if (longest < 0) {
+            longest = 0;
+            for (int s = 0, size = this.size(); s < size; s++) { // 空闲位置的深度为 0
+                longest = Math.max(longest, this.depth(s));
+            }
+            this.longest = longest;
+        }
+        return longest;
+    }
+
+    boolean isLeaf(final int state) {
+        return this.base(state) == 0;
+    }
+
+    boolean isWord(final int state) {
+        return this.word(state) != NONE;
+    }
+
+    /**
+     * 编译
+     *
+     * @param root      trie根节点
+     * @param automaton 是否同时编译失败指针,调用方需保证 root 已经 {@link DFAWordsMatcher.DfaNode#link()}
+     * @param words     敏感词表,下标即节点上的敏感词 id
+     * @return {@link DoubleArrayTrie }
+     */
+    static DoubleArrayTrie compile(final DFAWordsMatcher.DfaNode root, final boolean automaton, final String[] words) {
+        return new Builder().build(root, automaton, words);
+    }
+
+    /**
+     * 数组都在堆上的双数组trie
+     */
+    static final class Heap extends DoubleArrayTrie {
+
+        final int[] base;
+        final int[] check;
+        final int[] word;
+        final byte[] type;
+        final int[] depth;
+        final int[] fail;
+        final int[] output;
+        /**
+         * 敏感词表,下标即敏感词 id
+         */
+        final String[] words;
+
+        Heap(final int[] base, final int[] check, final int[] word, final byte[] type, final int[] depth,
+             final int[] fail, final int[] output, final String[] words) {
+            this.base = base;
+            this.check = check;
+            this.word = word;
+            this.type = type;
+            this.depth = depth;
+            this.fail = fail;
+            this.output = output;
+            this.words = words;
+        }
+
+        @Override
+        int child(final int state, final char c) {
+            final int b = this.base[state];
+            if (b == 0) {
+                return NONE;
+            }
+
+            final int t = b + c;
+            return t < this.check.length && this.check[t] == state ? t : NONE;
+        }
+
+        @Override
+        int base(final int state) {
+            return this.base[state];
+        }
+
+        @Override
+        int check(final int state) {
+            return this.check[state];
+        }
+
+        @Override
+        int word(final int state) {
+            return this.word[state];
+        }
+
+        @Override
+        int type(final int state) {
+            return this.type[state];
+        }
+
+        @Override
+        int depth(final int state) {
+            return this.depth[state];
+        }
+
+        @Override
+        int fail(final int state) {
+            return this.fail[state];
+        }
+
+        @Override
+        int output(final int state) {
+            return this.output[state];
+        }
+
+        @Override
+        boolean automaton() {
+            return this.fail != null;
+        }
+
+        @Override
+        int size() {
+            return this.base.length;
+        }
+
+        @Override
+        int wordCount() {
+            return this.words.length;
+        }
+
+        @Override
+        String source(final int wordId) {
+            return this.words[wordId];
+        }
+    }
+
+    private static final class Builder {
+
+        /**
+         * 一个节点在一个区域中最多尝试的空闲位置数
+         */
+        private static final int MAX_PROBES = 256;
+
+        private final Map<DFAWordsMatcher.DfaNode, Integer> states = new IdentityHashMap<>();
+        private int[] base = new int[Character.MAX_VALUE + 2];
+        private int[] check = new int[Character.MAX_VALUE + 2];
+        private int size = 1;
+        /**
+         * 空闲位置: free[i] == i 表示 i 空闲,否则沿 free 向后可以找到不小于 i 的空闲位置(查找时路径减半)。
+         * 只跳过已使用的位置,每个节点的查找从最小子节点字符对应的第一个空闲位置开始,不会重复扫描已使用的区域
+         */
+        private int[] free = new int[Character.MAX_VALUE + 2];
+        /**
+         * 最近一次开辟的稀疏区域的起始位置,见 {@link #findBase(DFAWordsMatcher.DfaNode[])}
+         */
+        private int spread;
+
+        private Heap build(final DFAWordsMatcher.DfaNode root, final boolean automaton, final String[] words) {
+            Arrays.fill(this.check, NONE);
+            for (int i = 0; i < this.free.length; i++) {
+                this.free[i] = i;
+            }
+            this.use(ROOT, ROOT);
+            this.states.put(root, ROOT);
+
+            final List<DFAWordsMatcher.DfaNode> order = new ArrayList<>();
+            final Deque<DFAWordsMatcher.DfaNode> queue = new ArrayDeque<>();
+            queue.add(root);
+            while (!queue.isEmpty()) {
+                final DFAWordsMatcher.DfaNode node = queue.poll();
+                order.add(node);
+
+                final int state = this.states.get(node);
+                if (node.isLeaf()) {
+                    continue;
+                }
+
+                final DFAWordsMatcher.DfaNode[] children = new DFAWordsMatcher.DfaNode[node.childCount()];
+                final int[] index = {0};
+                node.forEachChild(child -> children[index[0]++] = child);
+                Arrays.sort(children, (a, b) -> Character.compare(a.getChar(), b.getChar()));
+
+                final int b = this.findBase(children);
+                this.base[state] = b;
+                for (final DFAWordsMatcher.DfaNode child : children) {
+                    final int t = b + child.getChar();
+                    this.use(t, state);
+                    this.size = Math.max(this.size, t + 1);
+                    this.states.put(child, t);
+                    queue.add(child);
+                }
+            }
+
+            final int size = this.size;
+            final int[] word = new int[size];
+            final byte[] type = new byte[size];
+            final int[] depth = new int[size];
+            final int[] fail = automaton ? new int[size] : null;
+            final int[] output = automaton ? new int[size] : null;
+            Arrays.fill(word, NONE);
+
+            for (final DFAWordsMatcher.DfaNode node : order) {
+                final int state = this.states.get(node);
+                type[state] = (byte) node.type();
+                depth[state] = node.depth();
+                if (node.isWord()) {
+                    word[state] = node.id();
+                }
+                if (automaton) {
+                    fail[state] = node.fail() == null ? ROOT : this.states.get(node.fail());
+                    output[state] = node.output() == null ? NONE : this.states.get(node.output());
+                }
+            }
+
+            return new Heap(Arrays.copyOf(this.base, size), Arrays.copyOf(this.check, size), word, type, depth,
+                    fail, output, words);
+        }
+
+        /**
+         * 为一组(按字符升序的)子节点寻找可用的 base
+         *
+         * @apiNote <pre>
+         *     1.base 至少为 1,最小的子节点只能落在空闲位置上,从不小于 first + 1 的第一个空闲位置开始依次尝试
+         *     2.子节点分散(中文的字符集很大)时已使用区域中的空洞很难同时放下,尝试 {@link #MAX_PROBES} 次后
+         *       改到 {@link #spread} 开始的稀疏区域中尝试,仍然放不下时在已使用区域之后开辟新的稀疏区域
+         *     3.每个节点最多尝试 2 * {@link #MAX_PROBES} 个位置,编译时间与词库大小成线性关系
+         * </pre>
+         */
+        private int findBase(final DFAWordsMatcher.DfaNode[] children) {
+            final char first = children[0].getChar();
+            int b = this.probe(children, first + 1);
+            if (b == NONE && this.spread > first + 1) {
+                b = this.probe(children, this.spread);
+            }
+            if (b == NONE) {
+                b = Math.max(1, this.size - first);
+                this.spread = b + first;
+                this.ensure(b + children[children.length - 1].getChar() + 2);
+            }
+            return b;
+        }
+
+        /**
+         * @return 从 from 开始最多尝试 {@link #MAX_PROBES} 个空闲位置,都放不下时返回 {@link #NONE}
+         */
+        private int probe(final DFAWordsMatcher.DfaNode[] children, final int from) {
+            final char first = children[0].getChar();
+            final char last = children[children.length - 1].getChar();
+            int p = this.nextFree(from);
+            outer:
+            for (int probes = 0; probes < MAX_PROBES; probes++, p = this.nextFree(p + 1)) {
+                final int b = p - first;
+                this.ensure(b + last + 2);
+                for (int i = 1; i < children.length; i++) {
+                    if (this.check[b + children[i].getChar()] != NONE) {
+                        continue outer;
+                    }
+                }
+                return b;
+            }
+            return NONE;
+        }
+
+        /**
+         * @return 不小于 i 的第一个空闲位置
+         */
+        private int nextFree(int i) {
+            this.ensure(i + 2);
+            final int[] free = this.free;
+            while (free[i] != i) {
+                free[i] = free[free[i]];
+                i = free[i];
+            }
+            return i;
+        }
+
+        private void use(final int t, final int state) {
+            this.ensure(t + 2);
+            this.check[t] = state;
+            this.free[t] = t + 1;
+        }
+
+        private void ensure(final int capacity) {
+            if (capacity <= this.check.length) {
+                return;
+            }
+
+            final int length = Math.max(capacity, this.check.length + (this.check.length >> 1));
+            final int old = this.check.length;
+            this.base = Arrays.copyOf(this.base, length);
+            this.check = Arrays.copyOf(this.check, length);
+            this.free = Arrays.copyOf(this.free, length);
+            Arrays.fill(this.check, old, length, NONE);
+            for (int i = old; i < length; i++) {
+                this.free[i] = i;
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package io.github.fzdwx.words.internal.dfa;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+/**
+ * {@link DoubleArrayTrie} 的二进制文件格式
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote 所有整数均为大端序,int 数组都在 4 字节对齐的位置,可以直接映射为 IntBuffer。<pre>
+ *     header:   magic(int) version(int) flags(int) states(int) words(int)
+ *     arrays:   base[states] check[states] word[states] depth[states] (fail[states] output[states],仅自动机)
+ *     type:     type[states] 个字节
+ *     words:    每个词为 length(int) + UTF-8 字节,顺序即 id
+ *     trailer:  前面所有字节的 CRC32(int)
+ * </pre>
+ * @date 2026/10/17 19:10
+ */
+final class DoubleArrayTrieFile {
+
+    static final int MAGIC = 0x574D4441; // "WMDA"
+    static final int VERSION = 2;
+    static final int HEADER = 20;
+
+    static final int FLAG_FUZZ = 1;
+    static final int FLAG_AUTOMATON = 1 << 1;
+
+    private DoubleArrayTrieFile() {
+    }
+
+    /**
+     * 先写入同一目录下的临时文件并落盘,再原子地替换目标文件;
+     * 写入失败时目标文件保持原样,并发 {@link #read(Path)} 的进程只会读到完整的旧文件或新文件
+     */
+    static void write(final Path path, final boolean fuzz, final DoubleArrayTrie trie) throws IOException {
+        final ByteBuffer buffer = encode(fuzz, trie, ByteBuffer::allocate);
+        final Path target = path.toAbsolutePath();
+        final Path temp = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 按文件格式编码
+     *
+     * @param allocator 按字节数分配 buffer,例如 {@link ByteBuffer#allocateDirect(int)}
+     * @return {@link ByteBuffer } position 为 0,limit 为编码后的长度
+     */
+    static ByteBuffer encode(final boolean fuzz, final DoubleArrayTrie trie, final IntFunction<ByteBuffer> allocator) {
+        final int states = trie.size();
+        final boolean automaton = trie.automaton();
+        final byte[][] words = new byte[trie.wordCount()][];
+        int wordBytes = 0;
+        for (int i = 0; i < words.length; i++) {
+            words[i] = trie.source(i).getBytes(StandardCharsets.UTF_8);
+            wordBytes += 4 + words[i].length;
+        }
+
+        final int arrays = automaton ? 6 : 4;
+        final ByteBuffer buffer = allocator.apply(HEADER + arrays * 4 * states + states + wordBytes + 4);
+        buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt((fuzz ? FLAG_FUZZ : 0) | (automaton ? FLAG_AUTOMATON : 0))
+                .putInt(states)
+                .putInt(words.length);
+        for (int s = 0; s < states; s++) {
+            buffer.putInt(trie.base(s));
+        }
+        for (int s = 0; s < states; s++) {
+            buffer.putInt(trie.check(s));
+        }
+        for (int s = 0; s < states; s++) {
+            buffer.putInt(trie.word(s));
+        }
+        for (int s = 0; s < states; s++) {
+            buffer.putInt(trie.depth(s));
+        }
+        if (automaton) {
+            for (int s = 0; s < states; s++) {
+                buffer.putInt(trie.fail(s));
+            }
+            for (int s = 0; s < states; s++) {
+                buffer.putInt(trie.output(s));
+            }
+        }
+        for (int s = 0; s < states; s++) {
+            buffer.put((byte) trie.type(s));
+        }
+        for (final byte[] word : words) {
+            buffer.putInt(word.length).put(word);
+        }
+
+        final CRC32 crc = new CRC32();
+        final ByteBuffer content = buffer.duplicate();
+        content.flip();
+        crc.update(content);
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * 加载到堆上
+     */
+    static FrozenWordsMatcher read(final Path path) throws IOException {
+        final ByteBuffer buffer = map(path);
+        final int flags = buffer.getInt(8);
+        final int states = buffer.getInt(12);
+        final boolean automaton = (flags & FLAG_AUTOMATON) != 0;
+
+        buffer.position(HEADER);
+        final int[] base = ints(buffer, states);
+        final int[] check = ints(buffer, states);
+        final int[] word = ints(buffer, states);
+        final int[] depth = ints(buffer, states);
+        final int[] fail = automaton ? ints(buffer, states) : null;
+        final int[] output = automaton ? ints(buffer, states) : null;
+        final byte[] type = new byte[states];
+        buffer.get(type);
+        final String[] words = words(buffer, buffer.getInt(16));
+
+        return new FrozenWordsMatcher((flags & FLAG_FUZZ) != 0,
+                new DoubleArrayTrie.Heap(base, check, word, type, depth, fail, output, words));
+    }
+
+    /**
+     * 映射为堆外的匹配器,不复制状态数组
+     */
+    static FrozenWordsMatcher mapOffHeap(final Path path) throws IOException {
+        final ByteBuffer buffer = map(path);
+        return new FrozenWordsMatcher((buffer.getInt(8) & FLAG_FUZZ) != 0, new OffHeapDoubleArrayTrie(buffer));
+    }
+
+    /**
+     * 映射文件并校验 magic、版本与校验和
+     */
+    static MappedByteBuffer map(final Path path) throws IOException {
+        final MappedByteBuffer buffer;
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        final int length = buffer.limit();
+        if (length < HEADER + 4 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("not a words dictionary file: " + path);
+        }
+        // 版本 1 的模糊匹配词库没有折叠繁体,只有精确匹配的词库仍然可用
+        final int version = buffer.getInt(4);
+        if (version != VERSION && (version != 1 || (buffer.getInt(8) & FLAG_FUZZ) != 0)) {
+            throw new IOException("unsupported words dictionary version " + version + ": " + path);
+        }
+
+        final CRC32 crc = new CRC32();
+        final ByteBuffer content = buffer.duplicate();
+        content.limit(length - 4);
+        crc.update(content);
+        if ((int) crc.getValue() != buffer.getInt(length - 4)) {
+            throw new IOException("words dictionary checksum mismatch: " + path);
+        }
+        return buffer;
+    }
+
+    private static String[] words(final ByteBuffer buffer, final int count) {
+        final String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            final byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            words[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return words;
+    }
+
+    private static int[] ints(final ByteBuffer buffer, final int length) {
+        final int[] ints = new int[length];
+        buffer.asIntBuffer().get(ints);
+        buffer.position(buffer.position() + 4 * length);
+        return ints;
+    }
+}
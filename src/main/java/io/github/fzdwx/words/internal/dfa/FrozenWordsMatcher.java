@@ -0,0 +1,288 @@
+package io.github.fzdwx.words.internal.dfa;
+
+
+import io.github.fzdwx.lambada.fun.State;
+import io.github.fzdwx.words.MatchPolicy;
+import io.github.fzdwx.words.WordsMatcher;
+import io.github.fzdwx.words.WordsSession;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 冻结的词语匹配器
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote 由 {@link AccurateWordsMatcher#freeze()} 或 {@link FuzzWordsMatcher#freeze()} 得到,词库编译为 {@link DoubleArrayTrie}。<pre>
+ *     1.匹配规则与冻结前的匹配器一致
+ *     2.只读,不支持 {@link #put(String)}、{@link #remove(String)} 与 {@link #applyDelta(Collection, Collection)}
+ *     3.{@link #refresh(Collection)} 会重新编译整个词库,并按新词库重新分配 id,refresh 前命中的 id 不再有效
+ *     4.可以 {@link #save(Path)} 为二进制文件,启动时 {@link #load(Path)} 直接加载
+ *     5.{@link #map(Path)} 与 {@link #offHeap()} 得到堆外的匹配器,词库不占用堆,refresh 后的新词库在堆上
+ * </pre>
+ * @date 2026/10/17 11:40
+ */
+public final class FrozenWordsMatcher implements DFAWordsMatcher {
+
+    /**
+     * 是否为模糊匹配
+     */
+    private final boolean fuzz;
+
+    /**
+     * 当前词库快照,refresh 时整体替换
+     */
+    private volatile DoubleArrayTrie trie;
+
+    FrozenWordsMatcher(final boolean fuzz, final DoubleArrayTrie trie) {
+        this.fuzz = fuzz;
+        this.trie = trie;
+    }
+
+    /**
+     * 从 {@link #save(Path)} 保存的文件加载,不需要重新构建trie
+     *
+     * @throws IOException 文件不存在、格式或版本不对、校验和不一致
+     */
+    public static FrozenWordsMatcher load(final Path path) throws IOException {
+        return DoubleArrayTrieFile.read(path);
+    }
+
+    /**
+     * 把当前词库快照保存为二进制文件,格式见 {@link DoubleArrayTrieFile};先写临时文件再原子替换,失败时原文件不变
+     */
+    public void save(final Path path) throws IOException {
+        DoubleArrayTrieFile.write(path, this.fuzz, this.trie);
+    }
+
+    /**
+     * 映射 {@link #save(Path)} 保存的文件,直接在映射的内存上匹配,状态数组不复制到堆上;
+     * 映射同一个文件的多个 JVM 共享操作系统的页缓存
+     *
+     * @throws IOException 文件不存在、格式或版本不对、校验和不一致
+     */
+    public static FrozenWordsMatcher map(final Path path) throws IOException {
+        return DoubleArrayTrieFile.mapOffHeap(path);
+    }
+
+    /**
+     * 把当前词库快照复制到堆外(direct ByteBuffer)
+     *
+     * @return {@link FrozenWordsMatcher } 与当前匹配器规则一致、词库在堆外的匹配器
+     */
+    public FrozenWordsMatcher offHeap() {
+        final ByteBuffer buffer = DoubleArrayTrieFile.encode(this.fuzz, this.trie, ByteBuffer::allocateDirect);
+        return new FrozenWordsMatcher(this.fuzz, new OffHeapDoubleArrayTrie(buffer));
+    }
+
+    @Override
+    public boolean scan(final MatchPolicy policy, final String content, final HitHandler handle) {
+        return this.scanner(policy, DfaScanner.handler(handle)).scan(content);
+    }
+
+    @Override
+    public WordsSession session(final MatchPolicy policy, final StreamHitHandler handle) {
+        return new DfaSession(this.scanner(policy, handle));
+    }
+
+    @Override
+    public boolean scan(final MatchPolicy policy, final String content, final ForkJoinPool pool, final HitHandler handle) {
+        if (policy != MatchPolicy.ALL) {
+            return this.scan(policy, content, handle);
+        }
+        final int longest = this.trie.longest();
+        return new ParallelScanner(this.fuzz ? FuzzWordsMatcher.span(longest) : longest, (first, second) -> this.scanner(MatchPolicy.ALL, first))
+                .scan(content, pool, handle);
+    }
+
+    @Override
+    public boolean scan(final MatchPolicy policy, final Path path, final FileHitHandler handle) throws IOException {
+        final MappedFileScanner file = new MappedFileScanner(handle);
+        return file.scan(this.scanner(policy, file), path);
+    }
+
+    @Override
+    public State<Void> put(final String word) {
+        return State.failure(new UnsupportedOperationException("frozen words matcher is read-only"));
+    }
+
+    @Override
+    public State<Void> remove(final String word) {
+        return State.failure(new UnsupportedOperationException("frozen words matcher is read-only"));
+    }
+
+    /**
+     * @throws UnsupportedOperationException 只读,增量更新请使用 {@link #refresh(Collection)} 重新编译
+     */
+    @Override
+    public FrozenWordsMatcher applyDelta(final Collection<String> added, final Collection<String> removed) {
+        throw new UnsupportedOperationException("frozen words matcher is read-only");
+    }
+
+    @Override
+    public synchronized FrozenWordsMatcher refresh(final Collection<String> words) {
+        if (this.fuzz) {
+            this.trie = new FuzzWordsMatcher(words, new WordTable()).compile();
+        } else {
+            this.trie = new AccurateWordsMatcher(words, new WordTable()).compile();
+        }
+        return this;
+    }
+
+    @Override
+    public String word(final int wordId) {
+        final DoubleArrayTrie trie = this.trie;
+        if (wordId < 0 || wordId >= trie.wordCount()) {
+            throw new IndexOutOfBoundsException("word id: " + wordId);
+        }
+        return trie.source(wordId);
+    }
+
+    @Override
+    public int wordCount() {
+        return this.trie.wordCount();
+    }
+
+    @Override
+    public boolean hasWords() {
+        return !this.trie.isLeaf(DoubleArrayTrie.ROOT);
+    }
+
+    DfaScanner scanner(final MatchPolicy policy, final StreamHitHandler handle) {
+        final DoubleArrayTrie trie = this.trie;
+        return this.fuzz ? new FuzzScanner(trie, policy, handle) : new AccurateScanner(trie, policy, handle);
+    }
+
+    /**
+     * @see AccurateWordsMatcher.Scanner
+     */
+    static final class AccurateScanner extends DfaScanner {
+
+        private final DoubleArrayTrie trie;
+        private int state = DoubleArrayTrie.ROOT;
+
+        AccurateScanner(final DoubleArrayTrie trie, final MatchPolicy policy, final StreamHitHandler handle) {
+            super(policy, trie.prefilter(false), handle);
+            this.trie = trie;
+        }
+
+        @Override
+        boolean step(final char c, final long index) {
+            final DoubleArrayTrie trie = this.trie;
+            int state = this.state;
+            int next;
+            while ((next = trie.child(state, c)) == DoubleArrayTrie.NONE && state != DoubleArrayTrie.ROOT) {
+                state = trie.fail(state);
+            }
+            state = next == DoubleArrayTrie.NONE ? DoubleArrayTrie.ROOT : next;
+            this.state = state;
+
+            for (int hit = trie.isWord(state) ? state : trie.output(state); hit != DoubleArrayTrie.NONE; hit = trie.output(hit)) {
+                if (this.hit(trie.word(hit), index + 1 - trie.depth(hit), index + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        long matchStart(final long next) {
+            return next - this.trie.depth(this.state);
+        }
+    }
+
+    /**
+     * @see FuzzWordsMatcher.Scanner
+     */
+    static final class FuzzScanner extends DfaScanner {
+
+        private final DoubleArrayTrie trie;
+        private int[] states = new int[8];
+        private long[] starts = new long[8];
+        private long[] lasts = new long[8];
+        private int size;
+
+        FuzzScanner(final DoubleArrayTrie trie, final MatchPolicy policy, final StreamHitHandler handle) {
+            super(policy, trie.prefilter(true), handle);
+            this.trie = trie;
+        }
+
+        @Override
+        boolean step(final char c, final long index) {
+            final DoubleArrayTrie trie = this.trie;
+            int live = 0;
+            for (int k = 0; k < this.size; k++) {
+                int state = this.states[k];
+                final long start = this.starts[k];
+                final long last = this.lasts[k];
+                char wordChar = c;
+
+                if (trie.type(state) == DfaNode.DfaNodeType.zh) {
+                    if (!WordsMatcher.isChinese(wordChar)) { // 只匹配中文
+                        if (index - last <= FuzzWordsMatcher.MAX_SKIP) {
+                            this.keep(live++, state, start, last);
+                        }
+                        continue;
+                    } else // 繁体统一为简体
+                        wordChar = Simplified.fold(wordChar);
+                } else if (trie.type(state) == DfaNode.DfaNodeType.en) {
+                    if (!WordsMatcher.isLetter(wordChar)) { // 只匹配英文 其他字符不匹配
+                        if (index - last <= FuzzWordsMatcher.MAX_SKIP) {
+                            this.keep(live++, state, start, last);
+                        }
+                        continue;
+                    } else // 英文全部小写
+                        wordChar = WordsMatcher.toLowerCase(wordChar);
+                }
+
+                state = trie.child(state, wordChar);
+                if (state == DoubleArrayTrie.NONE) {
+                    continue;
+                }
+
+                if (trie.isWord(state)) {
+                    if (this.hit(trie.word(state), start, index + 1)) {
+                        this.size = 0;
+                        return true;
+                    }
+                }
+
+                if (!trie.isLeaf(state)) {
+                    this.keep(live++, state, start, index);
+                }
+            }
+            this.size = live;
+
+            int first = DoubleArrayTrie.NONE;
+            if (WordsMatcher.isLetter(c)) {
+                first = trie.child(DoubleArrayTrie.ROOT, WordsMatcher.toLowerCase(c));
+            } else if (WordsMatcher.isChinese(c)) {
+                first = trie.child(DoubleArrayTrie.ROOT, Simplified.fold(c));
+            }
+            if (first != DoubleArrayTrie.NONE && !trie.isLeaf(first)) {
+                this.keep(this.size++, first, index, index);
+            }
+            return false;
+        }
+
+        @Override
+        long matchStart(final long next) {
+            return this.size == 0 ? next : this.starts[0];
+        }
+
+        private void keep(final int k, final int state, final long start, final long last) {
+            if (k == this.states.length) {
+                this.states = Arrays.copyOf(this.states, k << 1);
+                this.starts = Arrays.copyOf(this.starts, k << 1);
+                this.lasts = Arrays.copyOf(this.lasts, k << 1);
+            }
+            this.states[k] = state;
+            this.starts[k] = start;
+            this.lasts[k] = last;
+        }
+    }
+}
@@ -1,15 +1,18 @@
 package io.github.fzdwx.words.internal.dfa;
 
 
-import io.github.fzdwx.lambada.Tuple;
 import io.github.fzdwx.lambada.fun.State;
+import io.github.fzdwx.words.MatchPolicy;
 import io.github.fzdwx.words.WordsMatcher;
+import io.github.fzdwx.words.WordsSession;
 import lombok.NoArgsConstructor;
-import org.apache.commons.lang3.StringUtils;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * 模糊词语匹配器
@@ -18,29 +21,63 @@ import java.util.Map;
  * @date 2022/3/10 15:22
  * @apiNote DFA 模糊词语匹配器<pre>
  *     1.每一个违禁词只能是纯中文或纯英文
- *     3.违禁词英文只能为小写(fuzz内部会转换为小写)
- *     2. case:
+ *     2.违禁词英文只能为小写(fuzz内部会转换为小写)
+ *     3.中文繁体统一折叠为简体,见 {@link Simplified},繁体词与简体内容、简体词与繁体内容都能命中
+ *     4. case:
  *      hello
  *          helloWorld -> hello
  *          he*l l.o   -> hello
+ *     5.匹配不加锁,可以与 put、refresh 并发进行;put 与 refresh 互斥执行,
+ *       put 返回后开始的匹配一定能看到新词,put 期间已经开始的匹配可能看到也可能看不到
+ *     6.词中相邻两个字之间最多跳过 {@link #MAX_SKIP} 个字符(默认 32,系统属性 words.fuzz.maxSkip 可以调整),
+ *       一次命中最多跨越 (词长 - 1) * ({@link #MAX_SKIP} + 1) + 1 个字符
  * </pre>
  */
 @NoArgsConstructor
 public class FuzzWordsMatcher implements DFAWordsMatcher {
 
-    private Map<Character, DfaNode> zhNodes;
-    private Map<Character, DfaNode> enNodes;
+    /**
+     * 游标连续跳过的字符超过该数量时结束,进行中的匹配因此有上限,扫描状态不会随内容无限增长。
+     * 由系统属性 words.fuzz.maxSkip 设置,默认 32,小于 0 时按 0;
+     * 越大则流式会话中等待确定的命中、文件扫描保留的窗口与并行扫描每段的重叠越长
+     */
+    static final int MAX_SKIP = Math.max(0, Integer.getInteger("words.fuzz.maxSkip", 32));
+
+    /**
+     * @param longest 最长的词的长度
+     * @return int 一次模糊命中最多跨越的字符数,超过 int 范围时为 {@link Integer#MAX_VALUE}
+     */
+    static int span(final int longest) {
+        return longest == 0 ? 0 : (int) Math.min(Integer.MAX_VALUE, (longest - 1L) * (MAX_SKIP + 1L) + 1);
+    }
+
+    /**
+     * 当前词库快照: trie根节点,中文词与英文词的首字符互不冲突(英文统一小写),共用一个根。
+     * {@link #refresh(Collection)} 在新trie构建完成后整体替换
+     */
+    private volatile DfaNode root = new DfaNode(Character.MIN_VALUE);
+
+    /**
+     * 当前trie的首字符过滤器,在 {@link #root} 之前写入;put 时原地置位,见 {@link Prefilter}
+     */
+    private volatile Prefilter.Bitmap prefilter;
+
+    /**
+     * 敏感词表,在 {@link #root} 之前写入;put 与 applyDelta 前后同一个词的 id 不变,删除的词的 id 保留到下一次 refresh。
+     * refresh 时按新词库重新分配 id,表的大小只取决于当前词库,refresh 前命中的 id 不再有效
+     */
+    private volatile WordTable words = new WordTable();
 
     private FuzzWordsMatcher(final Collection<String> words) {
-        this.zhNodes = new HashMap<>();
-        this.enNodes = new HashMap<>();
-        words.forEach(this::put);
+        this.refresh(words);
+    }
+
+    FuzzWordsMatcher(final Collection<String> words, final WordTable table) {
+        this.refresh(words, table);
     }
 
     private FuzzWordsMatcher(final String word) {
-        this.zhNodes = new HashMap<>();
-        this.enNodes = new HashMap<>();
-        this.put(word);
+        this.refresh(Collections.singletonList(word));
     }
 
     public static FuzzWordsMatcher create(final Collection<String> words) {
@@ -52,77 +89,104 @@ public class FuzzWordsMatcher implements DFAWordsMatcher {
     }
 
     @Override
-    public boolean process(final boolean partMatch, String content, final Handler handle) {
-        if (StringUtils.isEmpty(content)) {
-            return false;
-        }
-
-        content = StringUtils.trim(content);
-        final int contentSize = content.length();
-        if (contentSize < 2) { // 单字符不支持
-            return false;
-        }
+    public boolean scan(final MatchPolicy policy, final String content, final HitHandler handle) {
+        return this.scanner(policy, DfaScanner.handler(handle)).scan(content);
+    }
 
-        for (int index = 0; index < contentSize; index++) {
-            final char firstChar = content.charAt(index);
+    @Override
+    public WordsSession session(final MatchPolicy policy, final StreamHitHandler handle) {
+        return new DfaSession(this.scanner(policy, handle));
+    }
 
-            DfaNode node = this.getNode(firstChar);
-            if (node == null || node.isLeaf()) {
-                continue;
-            }
+    @Override
+    public boolean scan(final MatchPolicy policy, final String content, final ForkJoinPool pool, final HitHandler handle) {
+        if (policy != MatchPolicy.ALL) {
+            return this.scan(policy, content, handle);
+        }
+        // 各段使用同一个快照;词表晚于根节点读取,longest 不小于快照中最长的词
+        final DfaNode root = this.root;
+        final Prefilter.Bitmap prefilter = this.prefilter;
+        return new ParallelScanner(span(this.words.longest()), (first, second) -> new Scanner(root, prefilter, MatchPolicy.ALL, first)).scan(content, pool, handle);
+    }
 
-            // 源文本中匹配敏感词位置
-            int charCount = 1;
+    @Override
+    public boolean scan(final MatchPolicy policy, final Path path, final FileHitHandler handle) throws IOException {
+        final MappedFileScanner file = new MappedFileScanner(handle);
+        return file.scan(this.scanner(policy, file), path);
+    }
 
-            for (int i = index + 1; i < contentSize; i++) {
-                char wordChar = content.charAt(i);
+    /**
+     * 添加敏感词
+     *
+     * @apiNote 新路径构建完成后以一次写时复制挂到当前trie上,最后重新发布根节点
+     */
+    @Override
+    public synchronized State<Void> put(final String word) {
+        final DfaNode root = this.root;
+        final State<Void> state = this.put(root, this.words, word, true);
+        if (state.isSuccess()) {
+            this.root = root;
+        }
+        return state;
+    }
 
-                if ((node.type() == DfaNode.DfaNodeType.zh) || (WordsMatcher.isChinese(node.getChar()))) {
-                    if (!WordsMatcher.isChinese(wordChar)) { // 只匹配中文
-                        charCount++;
-                        continue;
-                    } // todo 简繁体？
-                } else if ((node.type() == DfaNode.DfaNodeType.en) || (WordsMatcher.isLetter(node.getChar()))) {
-                    if (!WordsMatcher.isLetter(wordChar)) { // 只匹配英文 其他字符不匹配
-                        charCount++;
-                        continue;
-                    } else // 英文全部小写
-                        wordChar = WordsMatcher.toLowerCase(wordChar);
-                }
+    @Override
+    public synchronized State<Void> remove(final String word) {
+        final DfaNode root = this.root;
+        final State<Void> state = this.remove(root, word);
+        if (state.isSuccess()) {
+            this.root = root;
+        }
+        return state;
+    }
 
-                node = node.getChildes().get(wordChar);
-                if (node != null) {
-                    charCount++;
-                } else {
-                    break;
-                }
+    /**
+     * 增量更新
+     *
+     * @apiNote 增删都在当前trie上以写时复制进行,与变化量成正比
+     */
+    @Override
+    public synchronized FuzzWordsMatcher applyDelta(final Collection<String> added, final Collection<String> removed) {
+        final DfaNode root = this.root;
+        if (removed != null) {
+            removed.forEach(word -> this.remove(root, word));
+        }
+        if (added != null) {
+            added.forEach(word -> this.put(root, this.words, word, true));
+        }
 
-                if (partMatch && node.isWord()) {
-                    if (handle.apply(Tuple.of(node.source(), StringUtils.substring(content, index, index + charCount)))) {
-                        return true;
-                    }
-                    break;
-                } else if (node.isWord()) {
-                    if (handle.apply(Tuple.of(node.source(), StringUtils.substring(content, index, index + charCount)))) {
-                        return true;
-                    }
-                }
+        this.root = root;
+        return this;
+    }
 
-                if (node.isLeaf()) {
-                    break;
-                }
-            }
+    /**
+     * 刷新
+     *
+     * @apiNote 新词库在调用线程上构建完成后才替换当前快照,期间并发的匹配继续使用旧快照,不会看到空的或构建到一半的trie
+     */
+    @Override
+    public synchronized FuzzWordsMatcher refresh(final Collection<String> words) {
+        return this.refresh(words, new WordTable(this.words.longest()));
+    }
 
-            if (partMatch) {
-                index += charCount;
-            }
+    /**
+     * @param table 新词库的敏感词表,{@link MixWordsMatcher} 的两部分传入同一张
+     */
+    private FuzzWordsMatcher refresh(final Collection<String> words, final WordTable table) {
+        final DfaNode root = new DfaNode(Character.MIN_VALUE);
+        if (words != null) {
+            words.forEach(word -> this.put(root, table, word, false));
         }
 
-        return false;
+        this.publish(root, table);
+        return this;
     }
 
-    @Override
-    public State<Void> put(String word) {
+    /**
+     * @param table  分配 id 的敏感词表
+     * @param shared root 是否已经发布给读线程,见 {@link DfaNode#insert(String, int, boolean)}
+     */
+    private State<Void> put(final DfaNode root, final WordTable table, String word, final boolean shared) {
         final State<String> state = WordsMatcher.isValidFuzzWord(word);
         if (state.isFailure()) {
             return state.newFail();
@@ -130,54 +194,188 @@ public class FuzzWordsMatcher implements DFAWordsMatcher {
 
         word = state.get();
 
-        char firstChar = word.charAt(0);
+        final char firstChar = word.charAt(0);
 
+        final char first;
         if (WordsMatcher.isChinese(firstChar)) {
-            DfaNode firstNode = this.zhNodes.get(firstChar);
-            if (firstNode == null) {
-                firstNode = new DfaNode(firstChar, DfaNode.DfaNodeType.zh);
-                this.zhNodes.put(firstChar, firstNode);
-            }
-            firstNode.fillChildren(firstNode, word, DfaNode.DfaNodeType.zh);
+            root.insert(word, DfaNode.DfaNodeType.zh, shared).word(word, table.id(word));
+            first = Simplified.fold(firstChar);
         } else if (WordsMatcher.isLetter(firstChar)) {
-            firstChar = WordsMatcher.toLowerCase(firstChar);
-            DfaNode firstNode = this.enNodes.get(firstChar);
-            if (firstNode == null) {
-                firstNode = new DfaNode(firstChar, DfaNode.DfaNodeType.en);
-                this.enNodes.put(firstChar, firstNode);
-            }
-            firstNode.fillChildren(firstNode, word, DfaNode.DfaNodeType.en);
+            root.insert(word, DfaNode.DfaNodeType.en, shared).word(word, table.id(word));
+            first = WordsMatcher.toLowerCase(firstChar);
         } else return state.newFail(new IllegalArgumentException("not support char " + firstChar)); // 不支持的字符 只支持中文和英文
 
+        if (shared) {
+            this.prefilter.add(first);
+        }
+
         return state.newSuccess();
     }
 
-    @Override
-    public FuzzWordsMatcher refresh(final Collection<String> words) {
-        this.zhNodes.clear();
-        this.enNodes.clear();
+    private State<Void> remove(final DfaNode root, String word) {
+        final State<String> state = WordsMatcher.isValidFuzzWord(word);
+        if (state.isFailure()) {
+            return state.newFail();
+        }
 
-        if (words != null) {
-            words.forEach(this::put);
+        word = state.get();
+
+        final int type = WordsMatcher.isChinese(word.charAt(0)) ? DfaNode.DfaNodeType.zh : DfaNode.DfaNodeType.en;
+        if (!root.remove(word, type)) {
+            return state.newFail(new IllegalArgumentException("word not found " + word));
         }
+        return state.newSuccess();
+    }
 
-        return this;
+    @Override
+    public String word(final int wordId) {
+        return this.words.word(wordId);
+    }
+
+    @Override
+    public int wordCount() {
+        return this.words.size();
     }
 
     @Override
     public boolean hasWords() {
-        return (this.zhNodes != null && this.zhNodes.size() > 0) || (this.enNodes != null && this.enNodes.size() > 0);
+        return !this.root.isLeaf();
+    }
+
+    Scanner scanner(final MatchPolicy policy, final StreamHitHandler handle) {
+        final DfaNode root = this.root;
+        return new Scanner(root, this.prefilter, policy, handle);
+    }
+
+    /**
+     * 发布新构建的trie,词表与过滤器先于根节点写入: 读到新根节点的匹配一定能读到对应的词表与过滤器
+     */
+    private void publish(final DfaNode root, final WordTable table) {
+        this.words = table;
+        this.prefilter = Prefilter.of(root, true);
+        this.root = root;
+    }
+
+    /**
+     * 冻结: 把当前词库编译为只读的双数组trie,保留中文/英文节点类型
+     *
+     * @return {@link FrozenWordsMatcher } 与当前匹配器规则一致的只读匹配器,之后对当前匹配器的修改不会影响它
+     */
+    public synchronized FrozenWordsMatcher freeze() {
+        return new FrozenWordsMatcher(true, this.compile());
     }
 
-    private DfaNode getNode(final char firstChar) {
+    /**
+     * 与修改互斥: put、remove 与 applyDelta 会原地修正失败指针与输出链,编译时不能读到修正到一半的trie
+     */
+    synchronized DoubleArrayTrie compile() {
+        return DoubleArrayTrie.compile(this.root, false, this.words.toArray());
+    }
+
+    private static DfaNode getNode(final DfaNode root, final char firstChar) {
         if (WordsMatcher.isLetter(firstChar)) {
             // 英文统一转小写
             final char c = WordsMatcher.toLowerCase(firstChar);
-            return this.enNodes.get(c);
+            return root.child(c);
         } else if (WordsMatcher.isChinese(firstChar)) {
-            // todo 简繁体？
-            return this.zhNodes.get(firstChar);
+            // 繁体统一为简体
+            return root.child(Simplified.fold(firstChar));
         }
         return null;
     }
-}
\ No newline at end of file
+
+    /**
+     * 模糊匹配扫描器
+     *
+     * @apiNote <pre>
+     *     每个可能的起始位置对应一个游标,所有游标随内容逐字符一起推进:
+     *     1.中文节点跳过非中文字符,英文节点跳过非英文字符(英文统一小写)
+     *     2.游标走到不存在的子节点或叶子节点时结束,连续跳过超过 {@link #MAX_SKIP} 个字符时也结束
+     *     3.游标按起始位置有序,同一位置结束的命中按起始位置由小到大回调
+     * </pre>
+     */
+    static final class Scanner extends DfaScanner {
+
+        private final DfaNode root;
+        private DfaNode[] nodes = new DfaNode[8];
+        private long[] starts = new long[8];
+        /**
+         * 游标最后一次走到子节点的位置
+         */
+        private long[] lasts = new long[8];
+        private int size;
+
+        Scanner(final DfaNode root, final Prefilter prefilter, final MatchPolicy policy, final StreamHitHandler handle) {
+            super(policy, prefilter, handle);
+            this.root = root;
+        }
+
+        @Override
+        boolean step(final char c, final long index) {
+            int live = 0;
+            for (int k = 0; k < this.size; k++) {
+                DfaNode node = this.nodes[k];
+                final long start = this.starts[k];
+                final long last = this.lasts[k];
+                char wordChar = c;
+
+                if ((node.type() == DfaNode.DfaNodeType.zh) || (WordsMatcher.isChinese(node.getChar()))) {
+                    if (!WordsMatcher.isChinese(wordChar)) { // 只匹配中文
+                        if (index - last <= MAX_SKIP) {
+                            this.keep(live++, node, start, last);
+                        }
+                        continue;
+                    } else // 繁体统一为简体
+                        wordChar = Simplified.fold(wordChar);
+                } else if ((node.type() == DfaNode.DfaNodeType.en) || (WordsMatcher.isLetter(node.getChar()))) {
+                    if (!WordsMatcher.isLetter(wordChar)) { // 只匹配英文 其他字符不匹配
+                        if (index - last <= MAX_SKIP) {
+                            this.keep(live++, node, start, last);
+                        }
+                        continue;
+                    } else // 英文全部小写
+                        wordChar = WordsMatcher.toLowerCase(wordChar);
+                }
+
+                node = node.child(wordChar);
+                if (node == null) {
+                    continue;
+                }
+
+                if (node.isWord()) {
+                    if (this.hit(node.id(), start, index + 1)) {
+                        this.size = 0;
+                        return true;
+                    }
+                }
+
+                if (!node.isLeaf()) {
+                    this.keep(live++, node, start, index);
+                }
+            }
+            this.size = live;
+
+            final DfaNode first = getNode(this.root, c);
+            if (first != null && !first.isLeaf()) {
+                this.keep(this.size++, first, index, index);
+            }
+            return false;
+        }
+
+        @Override
+        long matchStart(final long next) {
+            return this.size == 0 ? next : this.starts[0];
+        }
+
+        private void keep(final int k, final DfaNode node, final long start, final long last) {
+            if (k == this.nodes.length) {
+                this.nodes = Arrays.copyOf(this.nodes, k << 1);
+                this.starts = Arrays.copyOf(this.starts, k << 1);
+                this.lasts = Arrays.copyOf(this.lasts, k << 1);
+            }
+            this.nodes[k] = node;
+            this.starts[k] = start;
+            this.lasts[k] = last;
+        }
+    }
+}
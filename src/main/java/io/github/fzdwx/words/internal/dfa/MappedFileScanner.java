@@ -0,0 +1,219 @@
+package io.github.fzdwx.words.internal.dfa;
+
+import io.github.fzdwx.words.WordsMatcher;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 内存映射文件扫描
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote <pre>
+ *     1.文件按 {@link #WINDOW} 分段映射,直接在映射的字节上解码 UTF-8,每 {@link #BLOCK} 个字符一块,
+ *       块内由 {@link Prefilter} 跳过不可能开始匹配的字符(见 {@link DfaScanner#skip(char[], int, int, long)}),其余逐字符交给 {@link DfaScanner}
+ *     2.只为仍可能被命中引用的字符(见 {@link DfaScanner#liveStart(long)})保留字节位置与行号,占用与最长的进行中匹配成正比:
+ *       精确匹配不超过最长的词,模糊匹配不超过 最长的词 * ({@link FuzzWordsMatcher#MAX_SKIP} + 1),与文件大小无关
+ *     3.非法的 UTF-8 按 U+FFFD 处理,与 JDK 解码器的 {@link java.nio.charset.CodingErrorAction#REPLACE} 一致:
+ *       过长编码、代理区、大于 0x10FFFF 的码点与 0xF5 以上的首字节都是非法的
+ *     4.不重叠的策略会晚几个字符才回调命中,结束字节位置也按字符保存,不依赖当前字符
+ * </pre>
+ * @date 2026/10/17 16:40
+ */
+final class MappedFileScanner implements WordsMatcher.StreamHitHandler {
+
+    /**
+     * 每次映射的最大字节数
+     */
+    private static final long WINDOW = 64L << 20;
+
+    /**
+     * 每次解码的字符数
+     */
+    private static final int BLOCK = 4096;
+
+    private static final int REPLACEMENT = 0xFFFD;
+
+    private final WordsMatcher.FileHitHandler handle;
+
+    /**
+     * 当前块的字符与每个字符的开始、结束字节位置、行号
+     */
+    private final char[] chars = new char[BLOCK];
+    private final long[] charBytes = new long[BLOCK];
+    private final long[] charEnds = new long[BLOCK];
+    private final long[] charLines = new long[BLOCK];
+
+    /**
+     * 按字符位置循环存放的开始、结束字节位置与行号,保存 [low, 当前字符] 中交给扫描器的字符
+     */
+    private long[] bytes = new long[256];
+    private long[] ends = new long[256];
+    private long[] lines = new long[256];
+    private long low;
+
+    MappedFileScanner(final WordsMatcher.FileHitHandler handle) {
+        this.handle = handle;
+    }
+
+    boolean scan(final DfaScanner scanner, final Path path) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            long index = 0;
+            long line = 1;
+            long position = 0;
+            while (position < size) {
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, size - position));
+                final int limit = buffer.limit();
+                final boolean last = position + limit == size;
+
+                int i = 0;
+                // 不是最后一段时,末尾不足一个完整字符的字节留到下一段
+                while (i < limit && (last || i + 4 <= limit)) {
+                    int n = 0;
+                    while (n < BLOCK - 1 && i < limit && (last || i + 4 <= limit)) {
+                        final int decoded = decode(buffer, i, limit);
+                        final int cp = decoded >>> 3;
+                        final int length = decoded & 7;
+                        final long start = position + i;
+                        i += length;
+                        if (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                            this.put(n++, (char) cp, start, start + length, line);
+                        } else {
+                            // 代理对的高位字符不是完整的字符,结束字节位置仍取字符开始处
+                            this.put(n++, Character.highSurrogate(cp), start, start, line);
+                            this.put(n++, Character.lowSurrogate(cp), start, start + length, line);
+                        }
+                        if (cp == '\n') {
+                            line++;
+                        }
+                    }
+
+                    if (this.feed(scanner, n, index)) {
+                        return true;
+                    }
+                    index += n;
+                }
+                position += i;
+            }
+        }
+        return scanner.finish();
+    }
+
+    @Override
+    public boolean apply(final int wordId, final long start, final long end) {
+        final int mask = this.bytes.length - 1;
+        final int k = (int) start & mask;
+        return this.handle.apply(wordId, this.lines[k], this.bytes[k], this.ends[(int) (end - 1) & mask]);
+    }
+
+    /**
+     * 解码 i 开始的一个字符,非法字节的划分与 JDK 的 UTF-8 解码器一致
+     *
+     * @return int 码点 << 3 | 字节数,非法时码点为 U+FFFD
+     */
+    private static int decode(final MappedByteBuffer buffer, final int i, final int limit) {
+        final int b1 = buffer.get(i) & 0xFF;
+        if (b1 < 0x80) {
+            return b1 << 3 | 1;
+        }
+        // 不是最后一段时总有 4 个字节,只有文件末尾才会不足
+        final int b2 = i + 1 < limit ? buffer.get(i + 1) & 0xFF : -1;
+        final int b3 = i + 2 < limit ? buffer.get(i + 2) & 0xFF : -1;
+        final int b4 = i + 3 < limit ? buffer.get(i + 3) & 0xFF : -1;
+
+        if (b1 >= 0xC2 && b1 <= 0xDF) {
+            return isContinuation(b2) ? ((b1 & 0x1F) << 6 | b2 & 0x3F) << 3 | 2 : REPLACEMENT << 3 | 1;
+        }
+        if (b1 >= 0xE0 && b1 <= 0xEF) {
+            // 过长编码或第二个字节不是后续字节
+            if (b2 != -1 && (b1 == 0xE0 && (b2 & 0xE0) == 0x80 || !isContinuation(b2))) {
+                return REPLACEMENT << 3 | 1;
+            }
+            if (b3 == -1) { // 文件末尾不完整的字符整体替换
+                return REPLACEMENT << 3 | limit - i;
+            }
+            if (!isContinuation(b3)) {
+                return REPLACEMENT << 3 | 2;
+            }
+            final int cp = (b1 & 0x0F) << 12 | (b2 & 0x3F) << 6 | b3 & 0x3F;
+            return (Character.isSurrogate((char) cp) ? REPLACEMENT : cp) << 3 | 3;
+        }
+        if (b1 >= 0xF0 && b1 <= 0xF4) {
+            // 过长编码、大于 0x10FFFF 或第二个字节不是后续字节
+            if (b2 != -1 && (b1 == 0xF0 && (b2 < 0x90 || b2 > 0xBF)
+                    || b1 == 0xF4 && (b2 & 0xF0) != 0x80 || !isContinuation(b2))) {
+                return REPLACEMENT << 3 | 1;
+            }
+            if (b3 != -1 && !isContinuation(b3)) {
+                return REPLACEMENT << 3 | 2;
+            }
+            if (b4 == -1) {
+                return REPLACEMENT << 3 | limit - i;
+            }
+            if (!isContinuation(b4)) {
+                return REPLACEMENT << 3 | 3;
+            }
+            return ((b1 & 0x07) << 18 | (b2 & 0x3F) << 12 | (b3 & 0x3F) << 6 | b4 & 0x3F) << 3 | 4;
+        }
+        // 后续字节、0xC0、0xC1 与 0xF5 以上的首字节
+        return REPLACEMENT << 3 | 1;
+    }
+
+    private static boolean isContinuation(final int b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    private void put(final int n, final char c, final long start, final long end, final long line) {
+        this.chars[n] = c;
+        this.charBytes[n] = start;
+        this.charEnds[n] = end;
+        this.charLines[n] = line;
+    }
+
+    /**
+     * 把当前块交给扫描器
+     *
+     * @param offset 块中第一个字符的位置
+     */
+    private boolean feed(final DfaScanner scanner, final int n, final long offset) {
+        for (int k = scanner.skip(this.chars, 0, n, offset); k < n; k = scanner.skip(this.chars, k + 1, n, offset)) {
+            final long index = offset + k;
+            this.low = scanner.liveStart(index); // 跳过的字符不会被引用
+            if (index - this.low >= this.bytes.length) {
+                this.grow(index);
+            }
+            final int slot = (int) index & (this.bytes.length - 1);
+            this.bytes[slot] = this.charBytes[k];
+            this.ends[slot] = this.charEnds[k];
+            this.lines[slot] = this.charLines[k];
+
+            if (scanner.next(this.chars[k], index)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 扩容,保留 [low, index) 的字符
+     */
+    private void grow(final long index) {
+        final int mask = this.bytes.length - 1;
+        final long[] bytes = new long[this.bytes.length << 1];
+        final long[] ends = new long[this.ends.length << 1];
+        final long[] lines = new long[this.lines.length << 1];
+        final int newMask = bytes.length - 1;
+        for (long i = this.low; i < index; i++) {
+            bytes[(int) i & newMask] = this.bytes[(int) i & mask];
+            ends[(int) i & newMask] = this.ends[(int) i & mask];
+            lines[(int) i & newMask] = this.lines[(int) i & mask];
+        }
+        this.bytes = bytes;
+        this.ends = ends;
+        this.lines = lines;
+    }
+}
@@ -3,12 +3,17 @@ package io.github.fzdwx.words.internal.dfa;
 import io.github.fzdwx.lambada.Tuple;
 import io.github.fzdwx.lambada.fun.State;
 import io.github.fzdwx.lambada.internal.Tuple2;
+import io.github.fzdwx.words.MatchPolicy;
 import io.github.fzdwx.words.WordsMatcher;
+import io.github.fzdwx.words.WordsSession;
 import lombok.NoArgsConstructor;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * mixed words matcher
@@ -20,8 +25,15 @@ import java.util.List;
 @NoArgsConstructor
 public class MixWordsMatcher implements DFAWordsMatcher {
 
-    private AccurateWordsMatcher accurate;
-    private FuzzWordsMatcher fuzz;
+    /**
+     * 精确与模糊两部分共用的敏感词表,保证 id 不冲突;refresh 时与两部分一起替换,在 {@link #parts} 之前写入
+     */
+    private volatile WordTable words = new WordTable();
+
+    /**
+     * 精确与模糊两部分,refresh 时两者一起整体替换
+     */
+    private volatile Tuple2<AccurateWordsMatcher, FuzzWordsMatcher> parts = Tuple.of(new AccurateWordsMatcher(null, this.words), new FuzzWordsMatcher(null, this.words));
 
     public MixWordsMatcher(final Tuple2<List<String>, List<String>> divert) {
         this(divert.v1, divert.v2);
@@ -32,17 +44,7 @@ public class MixWordsMatcher implements DFAWordsMatcher {
     }
 
     public MixWordsMatcher(final Collection<String> accurateCollection, final Collection<String> fuzzCollection) {
-        if (accurateCollection != null && accurateCollection.size() > 0) {
-            this.accurate = WordsMatcher.accurate(accurateCollection);
-        } else {
-            this.accurate = null;
-        }
-
-        if (fuzzCollection != null && fuzzCollection.size() > 0) {
-            this.fuzz = WordsMatcher.fuzz(fuzzCollection);
-        } else {
-            this.fuzz = null;
-        }
+        this.refresh(accurateCollection, fuzzCollection);
     }
 
     public static MixWordsMatcher create(final Collection<String> words) {
@@ -53,36 +55,110 @@ public class MixWordsMatcher implements DFAWordsMatcher {
         return new MixWordsMatcher(accurateCollection, fuzzCollection);
     }
 
+    /**
+     * 精确与模糊两个扫描器由同一个循环驱动,内容只遍历一次;任一扫描器的 handler 要求停止时立即结束。
+     */
+    @Override
+    public boolean scan(final MatchPolicy policy, final String content, final HitHandler handle) {
+        return this.hasWords() && this.scanner(policy, DfaScanner.handler(handle)).scan(content);
+    }
+
+    @Override
+    public WordsSession session(final MatchPolicy policy, final StreamHitHandler handle) {
+        return new DfaSession(this.scanner(policy, handle));
+    }
+
     @Override
-    public boolean process(final boolean partMatch, final String content, final WordsMatcher.Handler handle) {
-        boolean processor = false;
-        if (this.accurate != null) {
-            processor = this.accurate.process(partMatch, content, handle);
+    public boolean scan(final MatchPolicy policy, final String content, final ForkJoinPool pool, final HitHandler handle) {
+        if (policy != MatchPolicy.ALL) {
+            return this.scan(policy, content, handle);
         }
+        final Tuple2<AccurateWordsMatcher, FuzzWordsMatcher> parts = this.parts;
+        // 精确与模糊部分共用词表,按模糊匹配估计
+        final int span = FuzzWordsMatcher.span(this.words.longest());
+        return this.hasWords() && new ParallelScanner(span, (first, second) -> this.scanner(parts, MatchPolicy.ALL, first, second)).scan(content, pool, handle);
+    }
 
-        if (this.fuzz != null) {
-            processor = this.fuzz.process(partMatch, content, handle);
+    @Override
+    public boolean scan(final MatchPolicy policy, final Path path, final FileHitHandler handle) throws IOException {
+        final MappedFileScanner file = new MappedFileScanner(handle);
+        return file.scan(this.scanner(policy, file), path);
+    }
+
+    /**
+     * 只有一部分有词时只推进那一部分
+     */
+    DfaScanner scanner(final MatchPolicy policy, final StreamHitHandler handle) {
+        return this.scanner(this.parts, policy, handle, handle);
+    }
+
+    /**
+     * @param accurateHandle 精确部分的回调,只用于 {@link MatchPolicy#ALL}
+     * @param fuzzHandle     模糊部分的回调,只用于 {@link MatchPolicy#ALL}
+     */
+    private DfaScanner scanner(final Tuple2<AccurateWordsMatcher, FuzzWordsMatcher> parts, final MatchPolicy policy,
+                               final StreamHitHandler accurateHandle, final StreamHitHandler fuzzHandle) {
+        final AccurateWordsMatcher accurate = parts.v1;
+        final FuzzWordsMatcher fuzz = parts.v2;
+        if (!fuzz.hasWords()) {
+            return accurate.scanner(policy, accurateHandle);
+        }
+        if (!accurate.hasWords()) {
+            return fuzz.scanner(policy, fuzzHandle);
         }
-        return processor;
+
+        if (policy == MatchPolicy.ALL) {
+            return new Scanner(MatchPolicy.ALL, null, accurate.scanner(MatchPolicy.ALL, accurateHandle), fuzz.scanner(MatchPolicy.ALL, fuzzHandle));
+        }
+        // 不重叠的取舍要在两部分的命中合在一起之后进行
+        final Scanner[] scanner = new Scanner[1];
+        final StreamHitHandler merged = (wordId, start, end) -> scanner[0].hit(wordId, start, end);
+        scanner[0] = new Scanner(policy, accurateHandle, accurate.scanner(MatchPolicy.ALL, merged), fuzz.scanner(MatchPolicy.ALL, merged));
+        return scanner[0];
     }
 
+    /**
+     * 添加敏感词
+     *
+     * @apiNote 与 refresh 互斥,保证新词不会加到刚被替换掉的旧部分上;可见性见 {@link AccurateWordsMatcher} 与 {@link FuzzWordsMatcher}
+     */
     @Override
-    public State<Void> put(final String word) {
+    public synchronized State<Void> put(final String word) {
         final State<String> state = WordsMatcher.isValidFuzzWord(word);
         if (state.isFailure()) {
             return state.newFail();
         }
+        final Tuple2<AccurateWordsMatcher, FuzzWordsMatcher> parts = this.parts;
         if (WordsMatcher.hasChAndEn(word)) {
-            if (this.accurate == null) {
-                this.accurate = WordsMatcher.accurate(word);
-            }
-            return this.accurate.put(word);
+            return parts.v1.put(word);
         }
 
-        if (this.fuzz == null) {
-            this.fuzz = WordsMatcher.fuzz(word);
-        }
-        return this.fuzz.put(word);
+        return parts.v2.put(word);
+    }
+
+    /**
+     * 删除敏感词,精确与模糊两部分中的都会被删除
+     */
+    @Override
+    public synchronized State<Void> remove(final String word) {
+        final Tuple2<AccurateWordsMatcher, FuzzWordsMatcher> parts = this.parts;
+        final State<Void> accurate = parts.v1.remove(word);
+        final State<Void> fuzz = parts.v2.remove(word);
+        return fuzz.isSuccess() ? fuzz : accurate;
+    }
+
+    /**
+     * 增量更新
+     *
+     * @apiNote 新增的词与 {@link #refresh(Collection)} 一样分到精确或模糊部分,删除的词两部分都删除
+     */
+    @Override
+    public synchronized MixWordsMatcher applyDelta(final Collection<String> added, final Collection<String> removed) {
+        final Tuple2<AccurateWordsMatcher, FuzzWordsMatcher> parts = this.parts;
+        final Tuple2<List<String>, List<String>> tuple = divert(added);
+        parts.v1.applyDelta(tuple.v1, removed);
+        parts.v2.applyDelta(tuple.v2, removed);
+        return this;
     }
 
     @Override
@@ -91,25 +167,34 @@ public class MixWordsMatcher implements DFAWordsMatcher {
         return refresh(tuple.v1, tuple.v2);
     }
 
-    public MixWordsMatcher refresh(final Collection<String> accurateCollection, final Collection<String> fuzzCollection) {
-        if (this.accurate == null) {
-            this.accurate = WordsMatcher.accurate(accurateCollection);
-        } else {
-            this.accurate = accurate.refresh(accurateCollection);
-        }
-
-        if (this.fuzz == null) {
-            this.fuzz = WordsMatcher.fuzz(fuzzCollection);
-        } else {
-            this.fuzz = fuzz.refresh(fuzzCollection);
-        }
+    /**
+     * 刷新
+     *
+     * @apiNote 精确与模糊两部分都构建完成后才一起替换,并发的匹配要么完整地使用旧词库,要么完整地使用新词库
+     */
+    public synchronized MixWordsMatcher refresh(final Collection<String> accurateCollection, final Collection<String> fuzzCollection) {
+        final WordTable table = new WordTable(this.words.longest());
+        final Tuple2<AccurateWordsMatcher, FuzzWordsMatcher> parts = Tuple.of(new AccurateWordsMatcher(accurateCollection, table), new FuzzWordsMatcher(fuzzCollection, table));
+        this.words = table;
+        this.parts = parts;
 
         return this;
     }
 
+    @Override
+    public String word(final int wordId) {
+        return this.words.word(wordId);
+    }
+
+    @Override
+    public int wordCount() {
+        return this.words.size();
+    }
+
     @Override
     public boolean hasWords() {
-        return (this.accurate.hasWords() || this.fuzz.hasWords());
+        final Tuple2<AccurateWordsMatcher, FuzzWordsMatcher> parts = this.parts;
+        return (parts.v1.hasWords() || parts.v2.hasWords());
     }
 
     private static Tuple2<List<String>, List<String>> divert(final Collection<String> words) {
@@ -143,4 +228,29 @@ public class MixWordsMatcher implements DFAWordsMatcher {
         }
         return Tuple.of(ac, fuzz);
     }
-}
\ No newline at end of file
+
+    /**
+     * 同时推进精确与模糊两个扫描器;两部分都找出所有命中,不重叠的策略由本扫描器统一取舍
+     */
+    static final class Scanner extends DfaScanner {
+
+        private final DfaScanner accurate;
+        private final DfaScanner fuzz;
+
+        Scanner(final MatchPolicy policy, final StreamHitHandler handle, final DfaScanner accurate, final DfaScanner fuzz) {
+            super(policy, Prefilter.union(accurate.prefilter(), fuzz.prefilter()), handle);
+            this.accurate = accurate;
+            this.fuzz = fuzz;
+        }
+
+        @Override
+        boolean step(final char c, final long index) {
+            return this.accurate.next(c, index) || this.fuzz.next(c, index);
+        }
+
+        @Override
+        long matchStart(final long next) {
+            return Math.min(this.accurate.liveStart(next), this.fuzz.liveStart(next));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package io.github.fzdwx.words.internal.dfa;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 直接读取堆外 ByteBuffer 的双数组trie
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote buffer 的内容为 {@link DoubleArrayTrieFile} 格式。<pre>
+ *     1.状态数组都是 buffer 上的 IntBuffer 视图,不复制到堆上
+ *     2.堆上只有每个敏感词在 buffer 中的位置(每个词 4 字节),敏感词在 {@link #source(int)} 时才解码
+ *     3.映射同一个文件的多个 JVM 共享操作系统的页缓存
+ *     4.只有绝对位置的读取,可以被多个线程同时使用
+ * </pre>
+ * @date 2026/10/17 19:40
+ */
+final class OffHeapDoubleArrayTrie extends DoubleArrayTrie {
+
+    private final ByteBuffer buffer;
+    private final int states;
+    private final IntBuffer base;
+    private final IntBuffer check;
+    private final IntBuffer word;
+    private final IntBuffer depth;
+    private final IntBuffer fail;
+    private final IntBuffer output;
+    private final ByteBuffer type;
+    /**
+     * 每个敏感词(长度前缀)在 buffer 中的位置
+     */
+    private final int[] words;
+
+    OffHeapDoubleArrayTrie(final ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.states = buffer.getInt(12);
+        final boolean automaton = (buffer.getInt(8) & DoubleArrayTrieFile.FLAG_AUTOMATON) != 0;
+
+        int position = DoubleArrayTrieFile.HEADER;
+        this.base = this.ints(position);
+        this.check = this.ints(position += 4 * this.states);
+        this.word = this.ints(position += 4 * this.states);
+        this.depth = this.ints(position += 4 * this.states);
+        position += 4 * this.states;
+        if (automaton) {
+            this.fail = this.ints(position);
+            this.output = this.ints(position += 4 * this.states);
+            position += 4 * this.states;
+        } else {
+            this.fail = null;
+            this.output = null;
+        }
+        this.type = this.slice(position, this.states);
+        position += this.states;
+
+        this.words = new int[buffer.getInt(16)];
+        for (int i = 0; i < this.words.length; i++) {
+            this.words[i] = position;
+            position += 4 + buffer.getInt(position);
+        }
+    }
+
+    @Override
+    int child(final int state, final char c) {
+        final int b = this.base.get(state);
+        if (b == 0) {
+            return NONE;
+        }
+
+        final int t = b + c;
+        return t < this.states && this.check.get(t) == state ? t : NONE;
+    }
+
+    @Override
+    int base(final int state) {
+        return this.base.get(state);
+    }
+
+    @Override
+    int check(final int state) {
+        return this.check.get(state);
+    }
+
+    @Override
+    int word(final int state) {
+        return this.word.get(state);
+    }
+
+    @Override
+    int type(final int state) {
+        return this.type.get(state);
+    }
+
+    @Override
+    int depth(final int state) {
+        return this.depth.get(state);
+    }
+
+    @Override
+    int fail(final int state) {
+        return this.fail.get(state);
+    }
+
+    @Override
+    int output(final int state) {
+        return this.output.get(state);
+    }
+
+    @Override
+    boolean automaton() {
+        return this.fail != null;
+    }
+
+    @Override
+    int size() {
+        return this.states;
+    }
+
+    @Override
+    int wordCount() {
+        return this.words.length;
+    }
+
+    @Override
+    String source(final int wordId) {
+        final int position = this.words[wordId];
+        final byte[] bytes = new byte[this.buffer.getInt(position)];
+        final ByteBuffer source = this.buffer.duplicate();
+        source.position(position + 4);
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private IntBuffer ints(final int position) {
+        return this.slice(position, 4 * this.states).asIntBuffer();
+    }
+
+    private ByteBuffer slice(final int position, final int length) {
+        final ByteBuffer slice = this.buffer.duplicate();
+        slice.limit(position + length).position(position);
+        return slice.slice();
+    }
+}
@@ -0,0 +1,198 @@
+package io.github.fzdwx.words.internal.dfa;
+
+import io.github.fzdwx.words.WordsMatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * 把一段很长的内容切成若干段并行扫描
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote <pre>
+ *     1.每一段从段首开始用新的扫描器扫描,只保留起始位置在本段内的命中
+ *     2.到达段尾后继续扫描,直到没有起始位置在本段内的进行中匹配(见 {@link DfaScanner#liveStart(long)}),
+ *       最多越过段尾 {@link #span} 个字符: 一次命中不会跨越更多字符,精确匹配为最长的词,
+ *       模糊匹配见 {@link FuzzWordsMatcher#span(int)};总的扫描量不超过 内容长度 + 段数 * span
+ *     3.span 不小于每段长度时分段没有意义,直接顺序扫描
+ *     4.每一段的命中按 (结束位置, 扫描器序号, 起始位置) 有序,与顺序扫描的回调顺序一致,归并后依次交给 handler
+ *     5.只支持 {@link io.github.fzdwx.words.MatchPolicy#ALL};不重叠的策略结果依赖前面的命中,只能顺序扫描
+ * </pre>
+ * @date 2026/10/17 17:50
+ */
+final class ParallelScanner {
+
+    /**
+     * 每段的最小长度,更短的内容直接顺序扫描
+     */
+    static final int MIN_SEGMENT = 1 << 16;
+
+    /**
+     * 一次命中最多跨越的字符数
+     */
+    private final int span;
+    private final Factory factory;
+
+    ParallelScanner(final int span, final Factory factory) {
+        this.span = span;
+        this.factory = factory;
+    }
+
+    boolean scan(final String content, final ForkJoinPool pool, final WordsMatcher.HitHandler handle) {
+        if (content == null) {
+            return false;
+        }
+
+        int from = 0;
+        int to = content.length();
+        while (from < to && content.charAt(from) <= ' ') {
+            from++;
+        }
+        while (to > from && content.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        final int segments = Math.min(pool.getParallelism() << 2, (to - from) / MIN_SEGMENT);
+        if (segments <= 1 || this.span >= (to - from) / segments) {
+            final WordsMatcher.StreamHitHandler hits = DfaScanner.handler(handle);
+            return this.factory.scanner(hits, hits).scan(content);
+        }
+
+        final int step = (to - from + segments - 1) / segments;
+        final List<ForkJoinTask<Hits>> tasks = new ArrayList<>(segments);
+        for (int start = from; start < to; start += step) {
+            tasks.add(pool.submit(new Segment(content, start, Math.min(start + step, to), to)));
+        }
+
+        // 两两归并,每个命中只被复制 log(段数) 次
+        List<Hits> merging = new ArrayList<>(tasks.size());
+        for (final ForkJoinTask<Hits> task : tasks) {
+            merging.add(task.join());
+        }
+        while (merging.size() > 1) {
+            final List<Hits> merged = new ArrayList<>((merging.size() + 1) >> 1);
+            for (int k = 0; k < merging.size(); k += 2) {
+                merged.add(k + 1 < merging.size() ? Hits.merge(merging.get(k), merging.get(k + 1)) : merging.get(k));
+            }
+            merging = merged;
+        }
+
+        final Hits hits = merging.get(0);
+        for (int i = 0; i < hits.size; i++) {
+            if (handle.apply(hits.ids[i], hits.starts[i], hits.ends[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 创建扫描器,first 与 second 分别交给先推进与后推进的扫描器(见 {@link MixWordsMatcher.Scanner}),
+     * 只有一个扫描器时使用 first
+     */
+    interface Factory {
+
+        DfaScanner scanner(WordsMatcher.StreamHitHandler first, WordsMatcher.StreamHitHandler second);
+    }
+
+    private final class Segment implements Callable<Hits> {
+
+        private final String content;
+        private final int start;
+        private final int end;
+        /**
+         * 内容(去掉首尾空白后)的结束位置
+         */
+        private final int to;
+
+        private Segment(final String content, final int start, final int end, final int to) {
+            this.content = content;
+            this.start = start;
+            this.end = end;
+            this.to = to;
+        }
+
+        @Override
+        public Hits call() {
+            final Hits hits = new Hits();
+            final int end = this.end;
+            final int limit = (int) Math.min(this.to, (long) end + ParallelScanner.this.span);
+            final DfaScanner scanner = ParallelScanner.this.factory.scanner(
+                    (wordId, start, e) -> start < end && hits.add(wordId, (int) start, (int) e, 0),
+                    (wordId, start, e) -> start < end && hits.add(wordId, (int) start, (int) e, 1));
+
+            for (int index = this.start; index < limit; index++) {
+                scanner.next(this.content.charAt(index), index);
+                if (index >= end - 1 && scanner.liveStart(index + 1) >= end) {
+                    break;
+                }
+            }
+            return hits;
+        }
+    }
+
+    /**
+     * 一段的命中,按 (ends, ranks, starts) 有序
+     */
+    private static final class Hits {
+
+        private int[] ids = new int[16];
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private byte[] ranks = new byte[16];
+        private int size;
+
+        /**
+         * @return 总是 false,不要求扫描器停止
+         */
+        private boolean add(final int wordId, final int start, final int end, final int rank) {
+            if (this.size == this.ids.length) {
+                final int capacity = this.size << 1;
+                this.ids = Arrays.copyOf(this.ids, capacity);
+                this.starts = Arrays.copyOf(this.starts, capacity);
+                this.ends = Arrays.copyOf(this.ends, capacity);
+                this.ranks = Arrays.copyOf(this.ranks, capacity);
+            }
+            this.ids[this.size] = wordId;
+            this.starts[this.size] = start;
+            this.ends[this.size] = end;
+            this.ranks[this.size] = (byte) rank;
+            this.size++;
+            return false;
+        }
+
+        private int compare(final int i, final Hits other, final int j) {
+            int c = Integer.compare(this.ends[i], other.ends[j]);
+            if (c == 0) {
+                c = Integer.compare(this.ranks[i], other.ranks[j]);
+            }
+            return c != 0 ? c : Integer.compare(this.starts[i], other.starts[j]);
+        }
+
+        private static Hits merge(final Hits a, final Hits b) {
+            if (b.size == 0) {
+                return a;
+            }
+            if (a.size == 0) {
+                return b;
+            }
+
+            final Hits hits = new Hits();
+            int i = 0;
+            int j = 0;
+            while (i < a.size || j < b.size) {
+                if (j == b.size || (i < a.size && a.compare(i, b, j) <= 0)) {
+                    hits.add(a.ids[i], a.starts[i], a.ends[i], a.ranks[i]);
+                    i++;
+                } else {
+                    hits.add(b.ids[j], b.starts[j], b.ends[j], b.ranks[j]);
+                    j++;
+                }
+            }
+            return hits;
+        }
+    }
+}
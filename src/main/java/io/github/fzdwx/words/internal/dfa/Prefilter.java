@@ -0,0 +1,189 @@
+package io.github.fzdwx.words.internal.dfa;
+
+/**
+ * 首字符过滤器: 没有进行中的匹配时,直接跳过不可能开始一个敏感词的字符,不做trie查找
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote <pre>
+ *     1.首字符是 64K 位(8KB)的位图,每个字符只有一次数组访问与位运算,干净的内容几乎只是顺序读一遍,
+ *       查找见 {@link CandidateScan}
+ *     2.精确匹配另有前两个字符的位图(按哈希,{@link #PAIR_BITS} 位):首字符与下一个字符组不成任何敏感词的前缀时也跳过。
+ *       敏感词至少两个字符,Aho-Corasick 在根状态跳过这样的字符与逐个推进结果一致;
+ *       模糊匹配会跳过词中间的其他字符,前两个字符不一定相邻,只用首字符;繁体折叠为首字符的也可以开始匹配
+ *     3.位图中有的不一定能开始匹配,没有的一定不能,过滤只会少跳、不会多跳
+ *     4.随trie一起发布;{@link Bitmap#add(char, char)} 在发布新根节点之前原地置位,与变化量成正比。
+ *       删除敏感词不清除位(位图只会多、不会少,过滤只是少跳一些),{@code refresh} 时重新构建
+ * </pre>
+ * @date 2026/10/17 21:10
+ */
+abstract class Prefilter {
+
+    /**
+     * 前两个字符位图的位数
+     */
+    static final int PAIR_BITS = 1 << 18;
+
+    /**
+     * @param scan 调用方扫描器持有的查找实例
+     * @return [from, to) 中第一个可能开始匹配的下标,没有时返回 to
+     */
+    abstract int skip(CandidateScan scan, CharSequence content, int from, int to);
+
+    /**
+     * @see #skip(CandidateScan, CharSequence, int, int)
+     */
+    abstract int skip(CandidateScan scan, char[] chars, int from, int to);
+
+    /**
+     * @param fuzz 是否为模糊匹配的trie: 英文首字符大小写都可以开始匹配,不使用前两个字符
+     */
+    static Bitmap of(final DFAWordsMatcher.DfaNode root, final boolean fuzz) {
+        final Bitmap bitmap = new Bitmap(fuzz);
+        root.forEachChild(first -> {
+            bitmap.head(first.getChar());
+            if (!fuzz) {
+                first.forEachChild(second -> bitmap.pair(first.getChar(), second.getChar()));
+            }
+        });
+        return bitmap.fold();
+    }
+
+    /**
+     * 遍历一次状态数组: check 为根的是首字符,check 的 check 为根的是第二个字符
+     */
+    static Prefilter of(final DoubleArrayTrie trie, final boolean fuzz) {
+        final Bitmap bitmap = new Bitmap(fuzz);
+        final int root = trie.base(DoubleArrayTrie.ROOT);
+        for (int state = 1; state < trie.size(); state++) {
+            final int parent = trie.check(state);
+            if (parent == DoubleArrayTrie.ROOT) {
+                bitmap.head((char) (state - root));
+            } else if (!fuzz && parent != DoubleArrayTrie.NONE && trie.check(parent) == DoubleArrayTrie.ROOT) {
+                bitmap.pair((char) (parent - root), (char) (state - trie.base(parent)));
+            }
+        }
+        return bitmap.fold();
+    }
+
+    /**
+     * 两个过滤器中任一个可能开始匹配的位置,不合并位图
+     */
+    static Prefilter union(final Prefilter first, final Prefilter second) {
+        return first == null || second == null ? null : new Union(first, second);
+    }
+
+    static final class Bitmap extends Prefilter {
+
+        private final int[] heads = new int[(Character.MAX_VALUE + 1) >>> 5];
+        private final long[] pairs;
+        private final boolean fuzz;
+
+        private Bitmap(final boolean fuzz) {
+            this.fuzz = fuzz;
+            this.pairs = fuzz ? null : new long[PAIR_BITS >>> 6];
+        }
+
+        private void head(final char c) {
+            this.heads[c >>> 5] |= 1 << c;
+            if (this.fuzz && c >= 'a' && c <= 'z') { // 模糊匹配的英文统一转小写
+                final char upper = (char) (c - 'a' + 'A');
+                this.heads[upper >>> 5] |= 1 << upper;
+            }
+        }
+
+        /**
+         * 模糊匹配: 加上折叠后为首字符的繁体字
+         */
+        private Bitmap fold() {
+            if (this.fuzz) {
+                for (char c = Simplified.FIRST; c <= Simplified.LAST; c++) {
+                    final char simplified = Simplified.fold(c);
+                    if (simplified != c && (this.heads[simplified >>> 5] & 1 << simplified) != 0) {
+                        this.heads[c >>> 5] |= 1 << c;
+                    }
+                }
+            }
+            return this;
+        }
+
+        /**
+         * 精确匹配的trie中加入了以 first、second 开头的词;只由持有写锁的线程调用,读线程通过之后发布的根节点看到新的位
+         */
+        void add(final char first, final char second) {
+            this.head(first);
+            this.pair(first, second);
+        }
+
+        /**
+         * 模糊匹配的trie中加入了以 first(已经小写、折叠为简体)开头的词
+         *
+         * @see #add(char, char)
+         */
+        void add(final char first) {
+            if ((this.heads[first >>> 5] & 1 << first) != 0) {
+                return;
+            }
+            this.head(first);
+            final String traditional = Simplified.traditional(first);
+            for (int i = 0; i < traditional.length(); i++) {
+                final char c = traditional.charAt(i);
+                this.heads[c >>> 5] |= 1 << c;
+            }
+        }
+
+        private void pair(final char first, final char second) {
+            final int h = hash(first, second);
+            this.pairs[h >>> 6] |= 1L << h;
+        }
+
+        @Override
+        int skip(final CandidateScan scan, final CharSequence content, final int from, final int to) {
+            for (int i = scan.find(this.heads, content, from, to); i < to; i = scan.find(this.heads, content, i + 1, to)) {
+                if (this.pairs == null || i + 1 == to || this.hasPair(content.charAt(i), content.charAt(i + 1))) {
+                    return i;
+                }
+            }
+            return to;
+        }
+
+        @Override
+        int skip(final CandidateScan scan, final char[] chars, final int from, final int to) {
+            for (int i = scan.find(this.heads, chars, from, to); i < to; i = scan.find(this.heads, chars, i + 1, to)) {
+                if (this.pairs == null || i + 1 == to || this.hasPair(chars[i], chars[i + 1])) {
+                    return i;
+                }
+            }
+            return to;
+        }
+
+        private boolean hasPair(final char first, final char second) {
+            final int h = hash(first, second);
+            return (this.pairs[h >>> 6] & 1L << h) != 0;
+        }
+
+        private static int hash(final char first, final char second) {
+            return ((first << 16 | second) * 0x9E3779B9) >>> (Integer.SIZE - Integer.numberOfTrailingZeros(PAIR_BITS));
+        }
+    }
+
+    private static final class Union extends Prefilter {
+
+        private final Prefilter first;
+        private final Prefilter second;
+
+        private Union(final Prefilter first, final Prefilter second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        int skip(final CandidateScan scan, final CharSequence content, final int from, final int to) {
+            return this.second.skip(scan, content, from, this.first.skip(scan, content, from, to));
+        }
+
+        @Override
+        int skip(final CandidateScan scan, final char[] chars, final int from, final int to) {
+            return this.second.skip(scan, chars, from, this.first.skip(scan, chars, from, to));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package io.github.fzdwx.words.internal.dfa;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 敏感词表,为每个敏感词分配一个从 0 开始的 id
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote <pre>
+ *     1.同一个词在表的生命周期内 id 不变,{@link MixWordsMatcher} 的精确与模糊部分共用一张表;
+ *       refresh 时匹配器换一张新表,按新词库从 0 重新分配,旧表随旧trie一起回收
+ *     2.命中回调只携带 id,需要时再通过 {@link #word(int)} 取出敏感词
+ *     3.分配 id 互斥进行;{@link #word(int)} 不加锁,可与分配并发
+ *     4.{@link #longest()} 是表中出现过的最长的词的长度,词从匹配器中删除后也不减小,只作为上界使用;
+ *       新表继承旧表的值,晚于trie读到的表的 longest 不会小于该trie中最长的词
+ * </pre>
+ * @date 2026/10/17 14:30
+ */
+final class WordTable {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private volatile String[] words = new String[16];
+    /**
+     * 先写入 words 再递增 size,读到 size 的线程一定能读到对应的词
+     */
+    private volatile int size;
+    private volatile int longest;
+
+    WordTable() {
+    }
+
+    /**
+     * @param longest 继承的 {@link #longest()}
+     */
+    WordTable(final int longest) {
+        this.longest = longest;
+    }
+
+    /**
+     * 取得词的 id,不存在时分配一个新的
+     */
+    synchronized int id(final String word) {
+        final Integer id = this.ids.get(word);
+        if (id != null) {
+            return id;
+        }
+
+        final int size = this.size;
+        String[] words = this.words;
+        if (size == words.length) {
+            words = Arrays.copyOf(words, size << 1);
+        }
+        words[size] = word;
+        this.words = words;
+        this.longest = Math.max(this.longest, word.length());
+        this.ids.put(word, size);
+        this.size = size + 1;
+        return size;
+    }
+
+    String word(final int id) {
+        if (id < 0 || id >= this.size) {
+            throw new IndexOutOfBoundsException("word id: " + id);
+        }
+        return this.words[id];
+    }
+
+    /**
+     * @return int 分配过 id 的词的个数
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * @return int 分配过 id 的词的最大长度
+     */
+    int longest() {
+        return this.longest;
+    }
+
+    String[] toArray() {
+        final int size = this.size;
+        return Arrays.copyOf(this.words, size);
+    }
+}
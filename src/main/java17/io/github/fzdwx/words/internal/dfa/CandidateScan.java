@@ -0,0 +1,151 @@
+package io.github.fzdwx.words.internal.dfa;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 在首字符位图中查找下一个候选位置,Java 17 及以上的实现
+ *
+ * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
+ * @apiNote 与 src/main/java 中的同名类结果完全一致,由多版本 jar 在 Java 17 及以上替换。<pre>
+ *     1.每次取 {@link Vectorized#INTS} 个字符扩展为 int,以 c >>> 5 为下标从位图中 gather,再取出第 c & 31 位,
+ *       整块都不在位图中时直接跳过,否则定位到块中第一个候选字符。gather 的下标只能从 int[] 读取,
+ *       下标数组与 String 的分块缓冲区都由实例持有,第一次使用向量时分配,之后的查找不再分配
+ *     2.jdk.incubator.vector 是孵化模块,运行时需要 --add-modules jdk.incubator.vector,没有加载时逐字符查找
+ *     3.相邻的候选往往只隔几个字符,先逐字符检查 {@link #PROBE} 个字符,之后才使用向量
+ *     4.String 按 {@link #BLOCK} 个字符分块复制到 char[] 后再检查
+ *     5.每个扫描器持有一个实例,不是线程安全的
+ * </pre>
+ * @date 2026/10/17 21:40
+ */
+final class CandidateScan {
+
+    private static final int PROBE = 16;
+    private static final int BLOCK = 256;
+
+    /**
+     * 是否使用向量实现
+     */
+    static final boolean VECTORIZED = vectorized();
+
+    private char[] block;
+    private int[] index;
+
+    CandidateScan() {
+    }
+
+    /**
+     * @return [from, to) 中第一个在位图中的字符的下标,没有时返回 to
+     */
+    int find(final int[] heads, final CharSequence content, final int from, final int to) {
+        final int probe = Math.min(to, from + PROBE);
+        if (!VECTORIZED || probe == to || !(content instanceof String)) {
+            return scalar(heads, content, from, to);
+        }
+
+        final int found = scalar(heads, content, from, probe);
+        if (found < probe) {
+            return found;
+        }
+
+        final String string = (String) content;
+        final char[] block = this.block == null ? this.block = new char[BLOCK] : this.block;
+        final int[] indexes = this.indexes();
+        for (int i = probe; i < to; i += BLOCK) {
+            final int length = Math.min(BLOCK, to - i);
+            string.getChars(i, i + length, block, 0);
+            final int index = Vectorized.find(heads, block, 0, length, indexes);
+            if (index < length) {
+                return i + index;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * @see #find(int[], CharSequence, int, int)
+     */
+    int find(final int[] heads, final char[] chars, final int from, final int to) {
+        final int probe = Math.min(to, from + PROBE);
+        if (!VECTORIZED || probe == to) {
+            return scalar(heads, chars, from, to);
+        }
+
+        final int found = scalar(heads, chars, from, probe);
+        return found < probe ? found : Vectorized.find(heads, chars, probe, to, this.indexes());
+    }
+
+    private int[] indexes() {
+        return this.index == null ? this.index = new int[Vectorized.INTS.length()] : this.index;
+    }
+
+    private static int scalar(final int[] heads, final CharSequence content, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            final char c = content.charAt(i);
+            if ((heads[c >>> 5] & 1 << c) != 0) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static int scalar(final int[] heads, final char[] chars, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            final char c = chars[i];
+            if ((heads[c >>> 5] & 1 << c) != 0) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static boolean vectorized() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return Vectorized.INTS.length() >= 4;
+        } catch (final LinkageError | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 只在模块已加载时才会初始化,否则不会触发 jdk.incubator.vector 中的类加载
+     */
+    private static final class Vectorized {
+
+        static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+        /**
+         * 与 {@link #INTS} 的通道数相同
+         */
+        static final VectorSpecies<Short> SHORTS = VectorSpecies.of(short.class, VectorShape.forBitSize(INTS.vectorBitSize() / 2));
+
+        /**
+         * @param index gather 的下标,长度为 {@link #INTS} 的通道数
+         */
+        static int find(final int[] heads, final char[] chars, final int from, final int to, final int[] index) {
+            final int lanes = INTS.length();
+            int i = from;
+            for (final int bound = from + INTS.loopBound(to - from); i < bound; i += lanes) {
+                // JDK 17 的 ZERO_EXTEND_S2I 会拒绝大于 0x7FFF 的字符,改为符号扩展后再取低 16 位
+                final IntVector c = ((IntVector) ShortVector.fromCharArray(SHORTS, chars, i)
+                        .convertShape(VectorOperators.S2I, INTS, 0)).and(0xFFFF);
+                c.lanewise(VectorOperators.LSHR, 5).intoArray(index, 0);
+                final VectorMask<Integer> hit = IntVector.fromArray(INTS, heads, 0, index, 0)
+                        .lanewise(VectorOperators.LSHR, c) // 移位数只取低 5 位,即 c & 31
+                        .and(1)
+                        .compare(VectorOperators.NE, 0);
+                if (hit.anyTrue()) {
+                    return i + hit.firstTrue();
+                }
+            }
+            return scalar(heads, chars, i, to);
+        }
+    }
+}
@@ -3,16 +3,50 @@ package io.atomicode.fzdwx.words;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.CharsetUtil;
+import io.github.fzdwx.words.AsyncWordsMatcher;
+import io.github.fzdwx.words.MatchPolicy;
+import io.github.fzdwx.words.MeteredWordsMatcher;
 import io.github.fzdwx.words.WordsAction;
+import io.github.fzdwx.words.WordsHits;
 import io.github.fzdwx.words.WordsMatcher;
+import io.github.fzdwx.words.WordsMetrics;
+import io.github.fzdwx.words.WordsOccurrences;
+import io.github.fzdwx.words.WordsSession;
+import io.github.fzdwx.words.internal.dfa.AccurateWordsMatcher;
+import io.github.fzdwx.words.internal.dfa.FrozenWordsMatcher;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * @author <a href="mailto:likelovec@gmail.com">fzdwx</a>
@@ -20,6 +54,11 @@ import java.util.Map;
  */
 class WordsMatcherTest {
 
+    /**
+     * 模糊匹配的跳过上限,见 pom.xml 中的 test-vector
+     */
+    private static final int MAX_SKIP = Integer.getInteger("words.fuzz.maxSkip", 32);
+
     private static Collection<String> words = new HashSet<String>() {
         {
             add("中国人");
@@ -175,6 +214,57 @@ class WordsMatcherTest {
         Assertions.assertTrue(map.containsKey("66bb"));
     }
 
+    @Test
+    void testAccurateOverlap() {
+        final WordsMatcher accurate = WordsMatcher.accurate("中国人", "国人民", "人民", "中国人民万岁");
+        final Map<String, String> all = accurate.action("我是中国人民的一员").findAll();
+        Assertions.assertEquals(3, all.size());
+        Assertions.assertEquals("中国人", all.get("中国人"));
+        Assertions.assertEquals("国人民", all.get("国人民"));
+        Assertions.assertEquals("人民", all.get("人民"));
+    }
+
+    @Test
+    void testWideFanOut() {
+        final List<String> words = new ArrayList<>();
+        for (char c = '一'; c < '一' + 200; c++) {
+            words.add("中" + c);
+            words.add(c + "国");
+        }
+        final WordsMatcher accurate = WordsMatcher.accurate(words);
+        final Map<String, String> all = accurate.action("中丁国").findAll();
+        Assertions.assertTrue(all.containsKey("中丁"));
+        Assertions.assertTrue(all.containsKey("丁国"));
+        Assertions.assertFalse(accurate.action("国中").match());
+
+        final WordsMatcher fuzz = WordsMatcher.fuzz("qweFJAKf", "qweFJAKg");
+        Assertions.assertTrue(fuzz.action("QWEFJAKF").findAll().containsKey("qweFJAKf"));
+        Assertions.assertTrue(fuzz.action("QWEFJAKG").findAll().containsKey("qweFJAKg"));
+    }
+
+    @Test
+    void testMixedStop() {
+        final WordsMatcher mixed = WordsMatcher.mixed("你好aa", "中国人");
+        final List<String> hits = new ArrayList<>();
+        Assertions.assertTrue(mixed.process(false, "你好aa，中国人", kv -> hits.add(kv.v1)));
+        Assertions.assertEquals(1, hits.size());
+        Assertions.assertEquals("你好aa", hits.get(0));
+    }
+
+    @Test
+    void testScanWordId() {
+        final String content = " 你好aa，中,国人";
+        final int[] count = {0};
+        Assertions.assertFalse(this.mixed.scan(false, content, (wordId, start, end) -> {
+            count[0]++;
+            final String word = this.mixed.word(wordId);
+            Assertions.assertTrue(word.equals("你好aa") && content.substring(start, end).equals("你好aa")
+                    || word.equals("中国人") && content.substring(start, end).equals("中,国人"));
+            return false;
+        }));
+        Assertions.assertEquals(2, count[0]);
+    }
+
     @Test
     void testActionFast() {
         final WordsAction action = fuzz.actionFast(content);
@@ -217,6 +307,25 @@ class WordsMatcherTest {
         Assertions.assertEquals(action.rawContent(), content);
     }
 
+    @Test
+    void testReplaceSpan() {
+        final WordsAction action = WordsMatcher.fuzz("中国人").action("  中,国人 国人");
+        Assertions.assertEquals("  **** 国人", action.replace('*'));
+        Assertions.assertEquals("中,国人", action.findAll().get("中国人"));
+
+        final WordsAction overlap = WordsMatcher.accurate("中国人", "人民").action("中国人民");
+        Assertions.assertEquals("****", overlap.replace('*'));
+    }
+
+    @Test
+    void testHighlight() {
+        Assertions.assertEquals("x<font color='red'>a+b</font>y", WordsMatcher.accurate("a+b").action("xa+by").highlight());
+
+        final WordsAction action = WordsMatcher.accurate("中国人", "国人", "人民").action("我是中国人民，国人");
+        Assertions.assertEquals("我是[中国人民]，[国人]", action.highlight("[%s]"));
+        Assertions.assertEquals("我是中[国人]民，[国人]", action.highlightOne("国人", "[%s]"));
+    }
+
     @Test
     void testHasWord() {
         Assertions.assertTrue(this.mixed.hasWords());
@@ -261,6 +370,861 @@ class WordsMatcherTest {
         this.assertFuzz(all, action);
     }
 
+    @Test
+    void testRefreshConcurrently() throws InterruptedException {
+        final WordsMatcher[] matchers = matchers(words);
+        final AtomicBoolean missed = new AtomicBoolean();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final Thread reader = new Thread(() -> {
+            while (running.get()) {
+                for (final WordsMatcher matcher : matchers) {
+                    if (!matcher.action(this.content).findAll().containsKey("zzz")) {
+                        missed.set(true);
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 200; i++) {
+            for (final WordsMatcher matcher : matchers) {
+                matcher.refresh(words);
+            }
+        }
+        running.set(false);
+        reader.join();
+        Assertions.assertFalse(missed.get());
+    }
+
+    @Test
+    void testPutConcurrently() throws InterruptedException {
+        final WordsMatcher[] matchers = matchers(words);
+        final AtomicInteger published = new AtomicInteger(-1);
+        final AtomicBoolean missed = new AtomicBoolean();
+        final int count = 500;
+        final Thread[] readers = new Thread[2];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                int seen;
+                while ((seen = published.get()) < count - 1) {
+                    if (seen < 0) {
+                        continue;
+                    }
+                    final String word = "" + (char) (0x4E00 + seen) + (char) (0x5E00 + seen);
+                    for (final WordsMatcher matcher : matchers) {
+                        if (!matcher.action("它说" + word + "了").findAll().containsKey(word)) {
+                            missed.set(true);
+                        }
+                    }
+                }
+            });
+            readers[r].start();
+        }
+        for (int i = 0; i < count; i++) {
+            final String word = "" + (char) (0x4E00 + i) + (char) (0x5E00 + i);
+            for (final WordsMatcher matcher : matchers) {
+                Assertions.assertTrue(matcher.put(word).isSuccess());
+            }
+            published.set(i);
+        }
+        for (final Thread reader : readers) {
+            reader.join();
+        }
+        Assertions.assertFalse(missed.get());
+    }
+
+    @Test
+    void testRemoveConcurrently() throws InterruptedException {
+        // 删除的词与保留的词共享后缀,删除后输出链要跳过已经清除的单词节点
+        final int count = 500;
+        final List<String> added = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            added.add((char) (0x4E00 + i) + "人民");
+        }
+        added.add("人民");
+        final WordsMatcher matcher = WordsMatcher.accurate(added);
+        final AtomicInteger removed = new AtomicInteger(-1);
+        final AtomicBoolean wrong = new AtomicBoolean();
+        final Thread[] readers = new Thread[2];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                int seen;
+                while ((seen = removed.get()) < count - 1) {
+                    if (seen < 0) {
+                        continue;
+                    }
+                    final Map<String, String> all = matcher.action("它说" + added.get(seen) + "了").findAll();
+                    if (all.containsKey(added.get(seen)) || !all.containsKey("人民")) {
+                        wrong.set(true);
+                    }
+                }
+            });
+            readers[r].start();
+        }
+        for (int i = 0; i < count; i++) {
+            Assertions.assertTrue(matcher.remove(added.get(i)).isSuccess());
+            removed.set(i);
+        }
+        for (final Thread reader : readers) {
+            reader.join();
+        }
+        Assertions.assertFalse(wrong.get());
+    }
+
+    @Test
+    void testRemove() {
+        final List<String> added = new ArrayList<>();
+        for (int i = 0; i < 64; i++) { // 这一段中没有互为繁简的字,模糊匹配中不会折叠为同一个词
+            added.add("你" + (char) (0x6000 + i));
+        }
+
+        for (final WordsMatcher matcher : matchers(added)) {
+            for (int i = 0; i < 64; i += 2) {
+                Assertions.assertTrue(matcher.remove(added.get(i)).isSuccess());
+            }
+            Assertions.assertTrue(matcher.remove(added.get(0)).isFailure());
+            for (int i = 0; i < 64; i++) {
+                Assertions.assertEquals(i % 2 == 1, matcher.action("说" + added.get(i)).findAll().containsKey(added.get(i)));
+            }
+
+            matcher.applyDelta(Arrays.asList("hello", added.get(0)), added.subList(1, 64));
+            Assertions.assertEquals(Arrays.asList("hello", added.get(0)), new ArrayList<>(matcher.action("hi hello " + added.get(0)).findAll().keySet()));
+
+            matcher.applyDelta(null, Arrays.asList("hello", added.get(0)));
+            Assertions.assertFalse(matcher.hasWords());
+        }
+    }
+
+    @Test
+    void testRelink() {
+        // 字母表很小,词之间大量互为前缀、后缀,增量修正的失败指针要与重新构建的一致
+        final Random random = new Random(7);
+        final String alphabet = "甲乙丙丁";
+        final List<String> pool = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            final StringBuilder word = new StringBuilder();
+            for (int k = 2 + random.nextInt(4); k > 0; k--) {
+                word.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            pool.add(word.toString());
+        }
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 400; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        final String content = text.toString();
+
+        final Set<String> current = new LinkedHashSet<>();
+        final WordsMatcher matcher = WordsMatcher.accurate(current);
+        for (int round = 0; round < 200; round++) {
+            final String word = pool.get(random.nextInt(pool.size()));
+            if (round % 10 == 9) {
+                final List<String> added = new ArrayList<>();
+                final List<String> removed = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    final String other = pool.get(random.nextInt(pool.size()));
+                    if (current.contains(other) && !added.contains(other)) {
+                        removed.add(other);
+                    } else if (!removed.contains(other)) {
+                        added.add(other);
+                    }
+                }
+                matcher.applyDelta(added, removed);
+                current.removeAll(removed);
+                current.addAll(added);
+            } else if (current.remove(word)) {
+                Assertions.assertTrue(matcher.remove(word).isSuccess());
+            } else {
+                Assertions.assertTrue(matcher.put(word).isSuccess());
+                current.add(word);
+            }
+
+            final List<String> expected = hits(WordsMatcher.accurate(current), content);
+            Assertions.assertEquals(expected, hits(matcher, content));
+            if (round % 20 == 0) {
+                Assertions.assertEquals(expected, hits(((AccurateWordsMatcher) matcher).freeze(), content));
+            }
+        }
+    }
+
+    /**
+     * 精确、模糊、混合三种匹配器
+     */
+    private static WordsMatcher[] matchers(final Collection<String> words) {
+        return new WordsMatcher[]{WordsMatcher.accurate(words), WordsMatcher.fuzz(words), WordsMatcher.mixed(words)};
+    }
+
+    private static List<String> hits(final WordsMatcher matcher, final String content) {
+        final Hits hits = new Hits(matcher);
+        matcher.scan(MatchPolicy.ALL, content, hits);
+        return hits.hits;
+    }
+
+    private static List<String> hits(final WordsMatcher matcher, final Stream<WordsAction.Hit> lazy) {
+        final Hits hits = new Hits(matcher);
+        lazy.forEach(hit -> hits.apply(hit.wordId(), hit.start(), hit.end()));
+        return hits.hits;
+    }
+
+    /**
+     * 按顺序记录命中的敏感词与位置,从不要求停止
+     */
+    private static final class Hits implements WordsMatcher.HitHandler, WordsMatcher.StreamHitHandler, WordsMatcher.FileHitHandler {
+
+        private final WordsMatcher matcher;
+        private final List<String> hits = new ArrayList<>();
+
+        private Hits(final WordsMatcher matcher) {
+            this.matcher = matcher;
+        }
+
+        @Override
+        public boolean apply(final int wordId, final int start, final int end) {
+            return this.apply(wordId, (long) start, (long) end);
+        }
+
+        @Override
+        public boolean apply(final int wordId, final long start, final long end) {
+            this.hits.add(this.matcher.word(wordId) + ":" + start + "-" + end);
+            return false;
+        }
+
+        @Override
+        public boolean apply(final int wordId, final long line, final long start, final long end) {
+            this.hits.add(this.matcher.word(wordId) + ":" + line + ":" + start + "-" + end);
+            return false;
+        }
+    }
+
+    @Test
+    void testSession() throws IOException {
+        for (final WordsMatcher matcher : matchers(words)) {
+            final List<String> expected = hits(matcher, this.content);
+            Assertions.assertFalse(expected.isEmpty());
+
+            final Hits chunked = new Hits(matcher);
+            final WordsSession session = matcher.session(false, chunked);
+            for (int i = 0; i < this.content.length(); i += 3) {
+                session.feed(CharBuffer.wrap(this.content, i, Math.min(i + 3, this.content.length())));
+            }
+            Assertions.assertEquals(this.content.length(), session.position());
+            Assertions.assertEquals(expected, chunked.hits);
+
+            final Hits read = new Hits(matcher);
+            matcher.scan(false, new StringReader(this.content), read);
+            Assertions.assertEquals(expected, read.hits);
+        }
+    }
+
+    @Test
+    void testScanPath() throws IOException {
+        final String text = "第一行\n" + this.content + "\n𝄞 " + this.content;
+        final Path path = Files.createTempFile("words", ".txt");
+        try {
+            Files.write(path, text.getBytes(CharsetUtil.CHARSET_UTF_8));
+            for (final WordsMatcher matcher : matchers(words)) {
+                final Hits expected = new Hits(matcher);
+                matcher.scan(false, text, (wordId, start, end) -> expected.apply(wordId,
+                        text.substring(0, start).chars().filter(c -> c == '\n').count() + 1,
+                        text.substring(0, start).getBytes(CharsetUtil.CHARSET_UTF_8).length,
+                        text.substring(0, end).getBytes(CharsetUtil.CHARSET_UTF_8).length));
+                Assertions.assertFalse(expected.hits.isEmpty());
+
+                final Hits mapped = new Hits(matcher);
+                matcher.scan(false, path, mapped);
+                Assertions.assertEquals(expected.hits, mapped.hits);
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void testScanPathMalformed() throws IOException {
+        // 过长编码的"中"、代理区、0xF5 首字节、大于 0x10FFFF 与文件末尾不完整的字符都只能解码为 U+FFFD
+        final byte[] zhong = "中".getBytes(CharsetUtil.CHARSET_UTF_8);
+        final byte[] guo = "国".getBytes(CharsetUtil.CHARSET_UTF_8);
+        final byte[] renmin = "人民".getBytes(CharsetUtil.CHARSET_UTF_8);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[]{(byte) 0xF0, (byte) 0x84, (byte) 0xB8, (byte) 0xAD}, 0, 4);
+        out.write(guo, 0, guo.length);
+        out.write(new byte[]{(byte) 0xED, (byte) 0xA0, (byte) 0x80, (byte) 0xF5, (byte) 0x80, (byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80}, 0, 9);
+        out.write(renmin, 0, renmin.length);
+        out.write(zhong, 0, zhong.length);
+        out.write(guo, 0, guo.length);
+        out.write(new byte[]{(byte) 0xE4, (byte) 0xB8}, 0, 2);
+        final byte[] bytes = out.toByteArray();
+        final String text = new String(bytes, CharsetUtil.CHARSET_UTF_8);
+
+        final List<String> words = Arrays.asList("中国", "人民");
+        final Path path = Files.createTempFile("words", ".txt");
+        try {
+            Files.write(path, bytes);
+            for (final WordsMatcher matcher : matchers(words)) {
+                final List<String> expected = new ArrayList<>();
+                matcher.scan(false, text, (wordId, start, end) -> !expected.add(text.substring(start, end)));
+                Assertions.assertEquals(Arrays.asList("人民", "中国"), expected);
+
+                final List<String> mapped = new ArrayList<>();
+                matcher.scan(false, path, (wordId, line, start, end) ->
+                        !mapped.add(new String(bytes, (int) start, (int) (end - start), CharsetUtil.CHARSET_UTF_8)));
+                Assertions.assertEquals(expected, mapped);
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void testFuzzSkipWindow() {
+        final StringBuilder gap = new StringBuilder();
+        for (int i = 0; i < MAX_SKIP; i++) {
+            gap.append(i % 2 == 0 ? ' ' : '*');
+        }
+        for (final WordsMatcher matcher : Arrays.asList(WordsMatcher.fuzz("中国"), WordsMatcher.fuzz("中国").freeze(), WordsMatcher.mixed("中国"))) {
+            Assertions.assertTrue(matcher.action("中" + gap + "国").match());
+            Assertions.assertFalse(matcher.action("中" + gap + "-国").match());
+        }
+    }
+
+    @Test
+    void testSessionFlush() {
+        final StringBuilder gap = new StringBuilder();
+        for (int i = 0; i < MAX_SKIP + 8; i++) {
+            gap.append(' ');
+        }
+        for (final WordsMatcher matcher : matchers(Arrays.asList("中国", "中国人"))) {
+            final Hits hits = new Hits(matcher);
+            final WordsSession session = matcher.session(MatchPolicy.LEFTMOST_LONGEST, hits);
+            for (int i = 0; i < 100; i++) {
+                session.feed("中国" + gap);
+                Assertions.assertEquals(i + 1, hits.hits.size());
+            }
+        }
+    }
+
+    @Test
+    void testMatchAll() {
+        final List<String> contents = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            contents.add(i % 3 == 0 ? "nothing here " + i : this.content.substring(i % this.content.length()));
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (final WordsMatcher matcher : matchers(words)) {
+                final WordsHits hits = matcher.matchAll(false, contents, executor);
+                Assertions.assertEquals(contents.size(), hits.size());
+                for (int i = 0; i < contents.size(); i++) {
+                    final Hits actual = new Hits(matcher);
+                    for (int k = 0; k < hits.count(i); k++) {
+                        actual.apply(hits.wordId(i, k), hits.start(i, k), hits.end(i, k));
+                    }
+                    Assertions.assertEquals(hits(matcher, contents.get(i)), actual.hits);
+                }
+                Assertions.assertEquals(hits.size(), matcher.findAll(contents.stream()).size());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testScanParallel() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; builder.length() < 400_000; i++) {
+            builder.append(this.content, i % 7, this.content.length()).append(" *-").append(i);
+        }
+        final String document = builder.toString();
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final List<WordsMatcher> matchers = new ArrayList<>(Arrays.asList(matchers(words)));
+            matchers.add(WordsMatcher.fuzz(words).freeze());
+            for (final WordsMatcher matcher : matchers) {
+                final List<String> expected = hits(matcher, document);
+                Assertions.assertFalse(expected.isEmpty());
+
+                final Hits parallel = new Hits(matcher);
+                matcher.scan(false, document, pool, parallel);
+                Assertions.assertEquals(expected, parallel.hits);
+
+                final int[] count = {0};
+                Assertions.assertTrue(matcher.process(false, document, pool, tuple -> ++count[0] == 3));
+                Assertions.assertEquals(3, count[0]);
+            }
+
+            // 模糊命中跨越段尾,跳过的字符接近上限;中文游标在英文中不会一直存活到内容末尾
+            final StringBuilder sparse = new StringBuilder();
+            for (int i = 0; sparse.length() < 400_000; i++) {
+                sparse.append('中');
+                for (int k = i % 40; k > 0; k--) {
+                    sparse.append('x');
+                }
+                sparse.append(i % 3 == 0 ? "国" : "-");
+            }
+            final String text = sparse.toString();
+            for (final WordsMatcher matcher : new WordsMatcher[]{WordsMatcher.fuzz("中国"), WordsMatcher.mixed("中国"), WordsMatcher.fuzz("中国").freeze()}) {
+                final Hits parallel = new Hits(matcher);
+                matcher.scan(false, text, pool, parallel);
+                Assertions.assertEquals(hits(matcher, text), parallel.hits);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testAsync() throws Exception {
+        final WordsMatcher matcher = WordsMatcher.mixed(words);
+        try (final AsyncWordsMatcher async = new AsyncWordsMatcher(matcher, 2, 16)) {
+            Assertions.assertTrue(async.match(this.content).get());
+            Assertions.assertFalse(async.match("nothing here").get());
+            Assertions.assertEquals(matcher.action(this.content).findAll(), async.findAll(this.content).get());
+
+            final List<String> expected = hits(matcher, this.content);
+
+            final List<String> published = new CopyOnWriteArrayList<>();
+            final CountDownLatch completed = new CountDownLatch(1);
+            async.publish(false, this.content, new AsyncWordsMatcher.HitSubscriber() {
+                private AsyncWordsMatcher.Subscription subscription;
+
+                @Override
+                public void onSubscribe(final AsyncWordsMatcher.Subscription subscription) {
+                    this.subscription = subscription;
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onNext(final int wordId, final int start, final int end) {
+                    published.add(matcher.word(wordId) + ":" + start + "-" + end);
+                    this.subscription.request(1);
+                }
+
+                @Override
+                public void onError(final Throwable throwable) {
+                }
+
+                @Override
+                public void onComplete() {
+                    completed.countDown();
+                }
+            });
+            Assertions.assertTrue(completed.await(10, TimeUnit.SECONDS));
+            Assertions.assertEquals(expected, published);
+
+            final List<String> first = new CopyOnWriteArrayList<>();
+            final CountDownLatch cancelled = new CountDownLatch(1);
+            async.publish(true, this.content, new AsyncWordsMatcher.HitSubscriber() {
+                private AsyncWordsMatcher.Subscription subscription;
+
+                @Override
+                public void onSubscribe(final AsyncWordsMatcher.Subscription subscription) {
+                    this.subscription = subscription;
+                    subscription.request(5);
+                }
+
+                @Override
+                public void onNext(final int wordId, final int start, final int end) {
+                    first.add(wordId + ":" + start + "-" + end);
+                    this.subscription.cancel();
+                    cancelled.countDown();
+                }
+
+                @Override
+                public void onError(final Throwable throwable) {
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            });
+            Assertions.assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+            Thread.sleep(50);
+            Assertions.assertEquals(1, first.size());
+        }
+    }
+
+    @Test
+    void testSaveLoad() throws IOException {
+        final Path path = Files.createTempFile("words", ".dict");
+        try {
+            for (final FrozenWordsMatcher frozen : new FrozenWordsMatcher[]{WordsMatcher.accurate(words).freeze(), WordsMatcher.fuzz(words).freeze()}) {
+                frozen.save(path);
+                final FrozenWordsMatcher loaded = FrozenWordsMatcher.load(path);
+
+                final List<String> expected = hits(frozen, this.content);
+                Assertions.assertFalse(expected.isEmpty());
+                Assertions.assertEquals(expected, hits(loaded, this.content));
+            }
+
+            final byte[] bytes = Files.readAllBytes(path);
+            bytes[bytes.length / 2] ^= 1;
+            Files.write(path, bytes);
+            Assertions.assertThrows(IOException.class, () -> FrozenWordsMatcher.load(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void testSaveReplace() throws IOException {
+        // 覆盖已有的文件,不留下临时文件;替换失败时目标保持原样
+        final Path dir = Files.createTempDirectory("words");
+        final Path path = dir.resolve("words.dict");
+        final Path blocked = dir.resolve("blocked");
+        try {
+            WordsMatcher.accurate("中国").freeze().save(path);
+            WordsMatcher.accurate(words).freeze().save(path);
+            Assertions.assertEquals(words.size(), FrozenWordsMatcher.load(path).wordCount());
+
+            Files.createDirectory(blocked);
+            Files.createFile(blocked.resolve("file"));
+            Assertions.assertThrows(IOException.class, () -> WordsMatcher.accurate(words).freeze().save(blocked));
+            Assertions.assertTrue(Files.isDirectory(blocked));
+            try (Stream<Path> files = Files.list(dir)) {
+                Assertions.assertEquals(2, files.count());
+            }
+        } finally {
+            Files.deleteIfExists(blocked.resolve("file"));
+            Files.deleteIfExists(blocked);
+            Files.deleteIfExists(path);
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    void testOffHeap() throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        while (builder.length() < 200_000) {
+            builder.append(this.content).append(" *-");
+        }
+        final String document = builder.toString();
+
+        final Path path = Files.createTempFile("words", ".dict");
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (final FrozenWordsMatcher frozen : new FrozenWordsMatcher[]{WordsMatcher.accurate(words).freeze(), WordsMatcher.fuzz(words).freeze()}) {
+                frozen.save(path);
+                final List<String> expected = hits(frozen, this.content);
+                Assertions.assertFalse(expected.isEmpty());
+
+                for (final FrozenWordsMatcher offHeap : new FrozenWordsMatcher[]{FrozenWordsMatcher.map(path), frozen.offHeap()}) {
+                    Assertions.assertEquals(expected, hits(offHeap, this.content));
+                    // 堆外的匹配器没有敏感词表,并行扫描的重叠长度取自trie
+                    final Hits parallel = new Hits(offHeap);
+                    offHeap.scan(false, document, pool, parallel);
+                    Assertions.assertEquals(hits(frozen, document), parallel.hits);
+                }
+
+                final FrozenWordsMatcher mapped = FrozenWordsMatcher.map(path);
+                final int[] id = {-1};
+                mapped.scan(false, this.content, (wordId, start, end) -> (id[0] = wordId) >= 0);
+                final String word = mapped.word(id[0]);
+                mapped.refresh(Arrays.asList(word, "hello"));
+                Assertions.assertEquals(2, mapped.wordCount());
+                Assertions.assertEquals(word, mapped.word(0));
+                Assertions.assertTrue(mapped.action(this.content + " hello").findAll().containsKey("hello"));
+            }
+        } finally {
+            pool.shutdown();
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void testLazyHits() {
+        for (final WordsMatcher matcher : matchers(words)) {
+            final List<String> expected = hits(matcher, this.content);
+
+            final WordsAction action = matcher.action(this.content);
+            Assertions.assertEquals(expected.subList(0, 1), hits(matcher, action.hits().limit(1)));
+            Assertions.assertEquals(expected, hits(matcher, action.hits()));
+
+            action.findAll();
+            final Hits cached = new Hits(matcher);
+            for (final WordsAction.Hit hit : action) {
+                Assertions.assertEquals(this.content.substring(hit.start(), hit.end()), hit.text());
+                Assertions.assertEquals(hit.word() + "[" + hit.start() + ", " + hit.end() + ")", hit.toString());
+                cached.apply(hit.wordId(), hit.start(), hit.end());
+            }
+            Assertions.assertEquals(expected, cached.hits);
+        }
+    }
+
+    @Test
+    void testFindAllOccurrences() {
+        final WordsMatcher matcher = WordsMatcher.accurate(words);
+        final String text = "中国人民,人民,中国男人,人民";
+        final WordsAction action = matcher.action(text);
+        final WordsOccurrences occurrences = action.findAllOccurrences();
+
+        Assertions.assertEquals(new ArrayList<>(action.findAll().keySet()), IntStream.range(0, occurrences.distinctCount())
+                .mapToObj(occurrences::distinctWord).collect(Collectors.toList()));
+        int people = -1;
+        for (int k = 0; k < occurrences.distinctCount(); k++) {
+            if (occurrences.distinctWord(k).equals("人民")) {
+                people = occurrences.distinctWordId(k);
+                Assertions.assertEquals(3, occurrences.count(k));
+            }
+        }
+        Assertions.assertEquals(3, occurrences.countOf(people));
+        int total = 0;
+        for (int i = 0; i < occurrences.size(); i++) {
+            Assertions.assertEquals(occurrences.word(i), text.substring(occurrences.start(i), occurrences.end(i)));
+            total += occurrences.wordId(i) == people ? 1 : 0;
+        }
+        Assertions.assertEquals(3, total);
+        Assertions.assertEquals(0, occurrences.countOf(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void testOccurrencesWithoutMap() throws ReflectiveOperationException {
+        // findAllOccurrences、replace、highlight 只使用命中的 id 与位置,不建立 findAll 的 Map
+        final Field hintWords = WordsAction.class.getDeclaredField("hintWords");
+        hintWords.setAccessible(true);
+        final WordsAction action = WordsMatcher.accurate(words).action("中国人民,人民");
+        Assertions.assertEquals(4, action.findAllOccurrences().size());
+        Assertions.assertEquals("****,**", action.replace('*'));
+        Assertions.assertEquals("[中国人民],[人民]", action.highlight("[%s]"));
+        Assertions.assertEquals("中国[人民],[人民]", action.highlightOne("人民", "[%s]"));
+        Assertions.assertTrue(action.match());
+        Assertions.assertNull(hintWords.get(action));
+
+        Assertions.assertEquals(Arrays.asList("中国人", "中国人民", "人民"), new ArrayList<>(action.findAll().keySet()));
+        Assertions.assertNotNull(hintWords.get(action));
+    }
+
+    @Test
+    void testMatchPolicy() {
+        final String text = "他一举成名天下知,一举两得";
+        for (final WordsMatcher matcher : Arrays.asList(WordsMatcher.accurate("一举", "一举成名", "成名天下"),
+                WordsMatcher.fuzz("一举", "一举成名", "成名天下"), WordsMatcher.mixed("一举", "一举成名", "成名天下", "a一"),
+                WordsMatcher.accurate("一举", "一举成名", "成名天下").freeze())) {
+            Assertions.assertEquals(Arrays.asList("一举", "一举成名", "成名天下", "一举"), words(matcher, MatchPolicy.ALL, text));
+            Assertions.assertEquals(Arrays.asList("一举", "成名天下", "一举"), words(matcher, MatchPolicy.LEFTMOST_SHORTEST, text));
+            Assertions.assertEquals(Arrays.asList("一举成名", "一举"), words(matcher, MatchPolicy.LEFTMOST_LONGEST, text));
+
+            Assertions.assertEquals("他****天下知,**两得", matcher.action(text, MatchPolicy.LEFTMOST_LONGEST).replace('*'));
+            final List<String> lazy = new ArrayList<>();
+            matcher.action(text, MatchPolicy.LEFTMOST_LONGEST).forEach(hit -> lazy.add(hit.word()));
+            Assertions.assertEquals(Arrays.asList("一举成名", "一举"), lazy);
+        }
+
+        // 内容在进行中的匹配中结束时,等待的命中也会交出
+        Assertions.assertEquals(Collections.singletonList("一举"), words(WordsMatcher.accurate("一举", "一举成名"), MatchPolicy.LEFTMOST_LONGEST, "一举成"));
+    }
+
+    private static List<String> words(final WordsMatcher matcher, final MatchPolicy policy, final String text) {
+        final List<String> words = new ArrayList<>();
+        matcher.scan(policy, text, (wordId, start, end) -> {
+            Assertions.assertEquals(matcher.word(wordId), text.substring(start, end));
+            return !words.add(matcher.word(wordId));
+        });
+        return words;
+    }
+
+    @Test
+    void testMetered() throws IOException {
+        final MeteredWordsMatcher matcher = WordsMatcher.metered(WordsMatcher.mixed(words));
+        final String text = "中国人民,人民,中国男人,人民";
+        Assertions.assertEquals(WordsMatcher.mixed(words).action(text).findAll(), matcher.action(text).findAll());
+        matcher.scan(false, new StringReader(text), (wordId, start, end) -> false);
+        matcher.refresh(words);
+
+        final List<WordsMetrics.Snapshot> exported = new ArrayList<>();
+        matcher.metrics().export(exported::add);
+        final WordsMetrics.Snapshot snapshot = exported.get(0);
+        Assertions.assertEquals(2, snapshot.scans());
+        Assertions.assertEquals(text.length() * 2L, snapshot.chars());
+        Assertions.assertTrue(snapshot.visited() > 0 && snapshot.visited() <= snapshot.chars());
+        Assertions.assertEquals(6, snapshot.wordHits().get("人民"));
+        Assertions.assertEquals(snapshot.hits(), snapshot.wordHits().values().stream().mapToLong(Long::longValue).sum());
+        Assertions.assertEquals(1, snapshot.scanLatency().count());
+        Assertions.assertTrue(snapshot.scanLatency().percentile(0.99) <= snapshot.scanLatency().max());
+        Assertions.assertEquals(1, snapshot.refreshLatency().count());
+    }
+
+    @Test
+    void testMeteredWordCount() {
+        // 词库变化后计数器扩容,包括绕过包装直接修改被包装的匹配器
+        final WordsMatcher delegate = WordsMatcher.accurate("中国");
+        final MeteredWordsMatcher matcher = WordsMatcher.metered(delegate);
+        Assertions.assertEquals(1, matcher.wordCount());
+        matcher.applyDelta(Arrays.asList("人民", "男人"), null);
+        delegate.put("国人");
+        Assertions.assertEquals(4, matcher.wordCount());
+        matcher.scan(false, "中国人民,男人", (wordId, start, end) -> false);
+
+        final Map<String, Long> wordHits = matcher.metrics().snapshot().wordHits();
+        Assertions.assertEquals(Arrays.asList("中国", "人民", "男人", "国人"), new ArrayList<>(wordHits.keySet()));
+        Assertions.assertTrue(wordHits.values().stream().allMatch(count -> count == 1));
+    }
+
+    @Test
+    void testRefreshChurn() {
+        // refresh 按新词库重新分配 id,反复换成互不相交的词库时词表与计数器不随 refresh 的次数增长
+        final List<WordsMatcher> matchers = new ArrayList<>(Arrays.asList(matchers(Collections.singletonList("中国"))));
+        matchers.add(WordsMatcher.accurate(Collections.singletonList("中国")).freeze());
+        matchers.add(WordsMatcher.fuzz(Collections.singletonList("中国")).freeze());
+        matchers.add(WordsMatcher.metered(WordsMatcher.mixed(Collections.singletonList("中国"))));
+        final int rounds = 200;
+        for (final WordsMatcher matcher : matchers) {
+            for (int round = 0; round < rounds; round++) {
+                final List<String> dictionary = dictionary(round);
+                matcher.refresh(dictionary);
+                Assertions.assertEquals(dictionary.size(), matcher.wordCount());
+
+                final List<String> previous = round == 0 ? Collections.singletonList("中国") : dictionary(round - 1);
+                final String text = String.join(",", previous) + "," + String.join(",", dictionary);
+                Assertions.assertEquals(dictionary, words(matcher, MatchPolicy.ALL, text));
+            }
+        }
+
+        final MeteredWordsMatcher metered = (MeteredWordsMatcher) matchers.get(matchers.size() - 1);
+        final Map<String, Long> wordHits = metered.metrics().snapshot().wordHits();
+        Assertions.assertEquals(new HashSet<>(dictionary(rounds - 1)), wordHits.keySet());
+        Assertions.assertTrue(wordHits.values().stream().allMatch(count -> count == 1));
+    }
+
+    /**
+     * 第 round 次 refresh 的词库,各次之间互不相交
+     */
+    private static List<String> dictionary(final int round) {
+        final List<String> dictionary = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            dictionary.add("w" + (char) ('a' + round % 26) + (char) ('a' + round / 26) + (char) ('a' + i));
+        }
+        return dictionary;
+    }
+
+    @Test
+    void testMeteredRefresh() {
+        // refresh 后仍在词库中的词保留命中次数,计数器按词对应到新的 id
+        final MeteredWordsMatcher matcher = WordsMatcher.metered(WordsMatcher.accurate(Arrays.asList("中国", "人民")));
+        matcher.scan(false, "中国人民,人民", (wordId, start, end) -> false);
+        matcher.refresh(Arrays.asList("人民", "男人"));
+        Assertions.assertEquals("人民", matcher.word(0));
+        matcher.scan(false, "人民,男人", (wordId, start, end) -> false);
+
+        final Map<String, Long> wordHits = matcher.metrics().snapshot().wordHits();
+        Assertions.assertEquals(Arrays.asList("人民", "男人"), new ArrayList<>(wordHits.keySet()));
+        Assertions.assertEquals(3, wordHits.get("人民"));
+        Assertions.assertEquals(1, wordHits.get("男人"));
+    }
+
+    @Test
+    void testPrefilter() {
+        // 干净的内容只有首字符会进入trie,跳过的字符不影响命中与位置
+        final String clean = "今天天气不错,我们去公园散步吧。The weather is nice today!";
+        final String dirty = clean + "中国,人民,Hello,中__国__人";
+        for (final WordsMatcher matcher : Arrays.asList(this.accurate, this.fuzz, this.mixed,
+                WordsMatcher.accurate(words).freeze(), WordsMatcher.fuzz(words).freeze())) {
+            final WordsSession session = matcher.session(false, (wordId, start, end) -> true);
+            Assertions.assertFalse(session.feed(clean));
+            Assertions.assertFalse(session.finish());
+            Assertions.assertEquals(clean.length(), session.position());
+            Assertions.assertTrue(session.visited() < clean.length());
+
+            final List<String> chunked = new ArrayList<>();
+            final WordsSession stream = matcher.session(false, (wordId, start, end) -> !chunked.add(dirty.substring((int) start, (int) end)));
+            for (int i = 0; i < dirty.length(); i += 3) {
+                stream.feed(dirty, i, Math.min(i + 3, dirty.length()));
+            }
+            stream.finish();
+            final List<String> whole = new ArrayList<>();
+            matcher.scan(false, dirty, (wordId, start, end) -> !whole.add(dirty.substring(start, end)));
+            Assertions.assertEquals(whole, chunked);
+        }
+
+        Assertions.assertEquals("HELLO", this.fuzz.action("HELLO").findAll().get("hello"));
+        Assertions.assertTrue(this.accurate.action("你好你好aa").match());
+    }
+
+    @Test
+    void testPrefilterPut() throws ReflectiveOperationException {
+        // put 原地修改过滤器,不重新构建;新词的首字符(模糊匹配包括繁体与大写)随即可以开始匹配
+        final AccurateWordsMatcher accurate = (AccurateWordsMatcher) WordsMatcher.accurate("中国");
+        final WordsMatcher fuzz = WordsMatcher.fuzz("中国");
+        for (final WordsMatcher matcher : Arrays.asList(accurate, fuzz)) {
+            final Field field = matcher.getClass().getDeclaredField("prefilter");
+            field.setAccessible(true);
+            final Object prefilter = field.get(matcher);
+
+            Assertions.assertTrue(matcher.put("龍舟").isSuccess());
+            Assertions.assertTrue(matcher.put("dragon").isSuccess());
+            Assertions.assertTrue(matcher.put("中").isFailure());
+            Assertions.assertTrue(matcher.remove("人民").isFailure());
+            Assertions.assertTrue(matcher.remove("中国").isSuccess());
+            matcher.applyDelta(Collections.singletonList("人民"), null);
+            Assertions.assertSame(prefilter, field.get(matcher));
+
+            Assertions.assertEquals(Arrays.asList("龍舟", "dragon", "人民"), words(matcher, MatchPolicy.ALL, "今天 龍舟 dragon 人民 中国"));
+            Assertions.assertFalse(matcher.action("今天中国").match());
+        }
+        Assertions.assertEquals(Arrays.asList("龍舟:3-5", "dragon:6-12"), hits(fuzz, "今天 龙舟 DRAGON"));
+        accurate.refresh(Collections.singletonList("中国"));
+        Assertions.assertTrue(accurate.action("今天中国").match());
+    }
+
+    @Test
+    void testCandidateScan() throws ReflectiveOperationException {
+        if (Boolean.getBoolean("words.vectorized")) { // 见 pom.xml 中的 test-vector
+            final Field vectorized = Class.forName("io.github.fzdwx.words.internal.dfa.CandidateScan").getDeclaredField("VECTORIZED");
+            vectorized.setAccessible(true);
+            Assertions.assertTrue(vectorized.getBoolean(null));
+        }
+
+        // 长段不在位图中的字符,包括大于 0x7FFF 的,偶尔夹着敏感词
+        final List<String> words = Arrays.asList("中国", "人民", "가나", "ＡＢ");
+        final Random random = new Random(17);
+        final StringBuilder content = new StringBuilder();
+        final List<String> expected = new ArrayList<>();
+        while (content.length() < 20_000) {
+            if (random.nextInt(50) == 0) {
+                final String word = words.get(random.nextInt(words.size()));
+                expected.add(word + ":" + content.length());
+                content.append(word);
+            } else {
+                final char[] fillers = {'a', '天', (char) 0xAC01, (char) 0xFF41, (char) 0xFFFD};
+                content.append(fillers[random.nextInt(fillers.length)]);
+            }
+        }
+        final String text = content.toString();
+        for (final WordsMatcher matcher : Arrays.asList(WordsMatcher.accurate(words), WordsMatcher.accurate(words).freeze())) {
+            final List<String> actual = new ArrayList<>();
+            matcher.scan(MatchPolicy.ALL, text, (wordId, start, end) -> !actual.add(matcher.word(wordId) + ":" + start));
+            Assertions.assertEquals(expected, actual);
+
+            final List<String> streamed = new ArrayList<>();
+            final WordsSession session = matcher.session(false, (wordId, start, end) -> !streamed.add(matcher.word(wordId) + ":" + start));
+            session.feed(text.toCharArray(), 0, text.length());
+            session.finish();
+            Assertions.assertEquals(expected, streamed);
+        }
+    }
+
+    @Test
+    void testTraditional() {
+        // 模糊匹配中繁体与简体互相命中,命中的是原内容
+        final String text = "我是中國人,一舉成名走四方";
+        for (final WordsMatcher matcher : Arrays.asList(this.fuzz, this.mixed, WordsMatcher.fuzz(words).freeze())) {
+            final Map<String, String> all = matcher.action(text).findAll();
+            Assertions.assertEquals("中國人", all.get("中国人"));
+            Assertions.assertEquals("一舉成名", all.get("一举成名"));
+            Assertions.assertEquals("我是***,****走四方".length(), matcher.action(text).replace('*').length());
+        }
+
+        final WordsMatcher traditional = WordsMatcher.fuzz(Arrays.asList("臺灣", "國家"));
+        final Map<String, String> all = traditional.action("台-湾是一个国家").findAll();
+        Assertions.assertEquals("台-湾", all.get("臺灣"));
+        Assertions.assertEquals("国家", all.get("國家"));
+        Assertions.assertTrue(traditional.remove("国家").isSuccess());
+        Assertions.assertFalse(traditional.action("國家").match());
+
+        // 精确匹配仍然逐字比较
+        Assertions.assertFalse(WordsMatcher.accurate("中国人").action("中國人").match());
+    }
+
     @Test
     void testAccurate() {
         final WordsAction action = this.accurate.action(this.content);
@@ -284,6 +1248,75 @@ class WordsMatcherTest {
         this.assertFuzz(all, action);
     }
 
+    @Test
+    void testFreeze() {
+        final WordsMatcher accurate = WordsMatcher.accurate(words).freeze();
+        final WordsAction accurateAction = accurate.action(this.content);
+        this.assertAccurate(accurateAction.findAll(), accurateAction);
+        Assertions.assertEquals(this.accurate.action(this.content).findAll(), accurateAction.findAll());
+
+        final WordsMatcher fuzz = WordsMatcher.fuzz(words).freeze();
+        final WordsAction fuzzAction = fuzz.action(this.content);
+        this.assertFuzz(fuzzAction.findAll(), fuzzAction);
+        Assertions.assertEquals(this.fuzz.action(this.content).findAll(), fuzzAction.findAll());
+
+        Assertions.assertFalse(fuzz.put("我草你的").isSuccess());
+        Assertions.assertFalse(fuzz.refresh(null).hasWords());
+    }
+
+    @Test
+    void testFreezeConcurrently() throws InterruptedException {
+        // 冻结与增删并发: 编译不能读到修正到一半的失败指针,词表与trie中的 id 要一致
+        final List<String> churn = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            churn.add((char) (0x4E00 + i) + "人民");
+        }
+        final StringBuilder text = new StringBuilder();
+        for (final String word : churn) {
+            text.append(word).append(',');
+        }
+        final AccurateWordsMatcher matcher = (AccurateWordsMatcher) WordsMatcher.accurate(Collections.singletonList("人民"));
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final Thread writer = new Thread(() -> {
+            for (int i = 0; running.get(); i++) {
+                final String word = churn.get(i % churn.size());
+                if (matcher.remove(word).isFailure()) {
+                    matcher.put(word);
+                }
+            }
+        });
+        writer.start();
+        try {
+            for (int i = 0; i < 300; i++) {
+                final FrozenWordsMatcher frozen = matcher.freeze();
+                final List<String> found = words(frozen, MatchPolicy.ALL, text.toString());
+                Assertions.assertEquals(churn.size(), Collections.frequency(found, "人民"));
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    @Test
+    void testFreezeScaling() {
+        // 子节点分散在整个中文字符集上,base 查找不能退化为平方级别
+        final Random random = new Random(50_000);
+        final Set<String> words = new LinkedHashSet<>();
+        while (words.size() < 50_000) {
+            final StringBuilder word = new StringBuilder();
+            for (int i = 2 + random.nextInt(5); i > 0; i--) {
+                word.append((char) (0x4E00 + random.nextInt(0x9FA5 - 0x4E00 + 1)));
+            }
+            words.add(word.toString());
+        }
+
+        final FrozenWordsMatcher frozen = Assertions.assertTimeoutPreemptively(Duration.ofSeconds(20), () -> WordsMatcher.accurate(words).freeze());
+        for (final String word : words) {
+            Assertions.assertEquals(word, frozen.action(word).findAll().get(word));
+        }
+    }
+
     private void assertAccurate(final Map<String, String> all, WordsAction action) {
         Assertions.assertTrue(all.containsKey("你好aa"));
         Assertions.assertTrue(all.containsKey("zzz"));